@@ -2,8 +2,13 @@ package com.matt.iam;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// logins check passwords in AuthService and requests authenticate through JwtCustomFilter,
+// so no AuthenticationManager or UserDetailsService exists, not even Boot's in-memory default
+@SpringBootApplication(exclude = UserDetailsServiceAutoConfiguration.class)
+@EnableScheduling
 public class IamApplication {
 
 	public static void main(String[] args) {
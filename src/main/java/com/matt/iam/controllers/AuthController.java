@@ -2,6 +2,7 @@ package com.matt.iam.controllers;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -11,6 +12,8 @@ import com.matt.iam.dtos.request.LoginRequest;
 import com.matt.iam.dtos.request.RefreshTokenRequest;
 import com.matt.iam.dtos.request.RegisterRequest;
 import com.matt.iam.dtos.response.LoginResponse;
+import com.matt.iam.infra.AuthMetrics;
+import com.matt.iam.infra.AuthMetrics.Operation;
 import com.matt.iam.services.AuthService;
 
 import jakarta.validation.Valid;
@@ -20,10 +23,11 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AuthController {
     private final AuthService authService;
+    private final AuthMetrics authMetrics;
 
     @PostMapping("/register")
     public ResponseEntity<Void> register(@Valid @RequestBody RegisterRequest request) {
-        this.authService.createUser(request);
+        this.authMetrics.record(Operation.REGISTER, () -> this.authService.createUser(request));
         return ResponseEntity
                 .status(HttpStatus.OK)
                 .build();
@@ -33,7 +37,7 @@ public class AuthController {
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(this.authService.login(request));
+                .body(this.authMetrics.record(Operation.LOGIN, () -> this.authService.login(request)));
     }
 
     @PostMapping("/refresh")
@@ -43,9 +47,20 @@ public class AuthController {
     ) {
         String oldAccessToken = accessToken.replace("Bearer ", "");
 
+        RefreshTokenRequest refreshRequest = new RefreshTokenRequest(oldAccessToken, request.refreshToken());
+
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(this.authService.refreshToken(new RefreshTokenRequest(oldAccessToken, request.refreshToken())));
+                .body(this.authMetrics.record(Operation.REFRESH, () -> this.authService.refreshToken(refreshRequest)));
+    }
+
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutAll(Authentication authentication) {
+        this.authService.revokeAllSessions(authentication.getName());
+
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .build();
     }
 
     @PostMapping("/logout")
@@ -54,7 +69,8 @@ public class AuthController {
             @RequestHeader("Authorization") String accessToken
     ) {
         String oldAccessToken = accessToken.replace("Bearer ", "");
-        this.authService.logout(new RefreshTokenRequest(oldAccessToken, request.refreshToken()));
+        RefreshTokenRequest logoutRequest = new RefreshTokenRequest(oldAccessToken, request.refreshToken());
+        this.authMetrics.record(Operation.LOGOUT, () -> this.authService.logout(logoutRequest));
 
         return ResponseEntity
                 .status(HttpStatus.OK)
@@ -0,0 +1,39 @@
+package com.matt.iam.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.matt.iam.dtos.request.BatchIntrospectionRequest;
+import com.matt.iam.dtos.response.BatchIntrospectionResponse;
+import com.matt.iam.dtos.response.IntrospectionResponse;
+import com.matt.iam.services.TokenIntrospectionService;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+public class IntrospectionController {
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    // RFC 7662 request format
+    @PostMapping(value = "/introspect", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public ResponseEntity<IntrospectionResponse> introspect(@RequestParam("token") String token) {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(this.tokenIntrospectionService.introspect(token));
+    }
+
+    // results are returned in the order of the submitted tokens
+    @PostMapping(value = "/introspect/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchIntrospectionResponse> introspectBatch(@Valid @RequestBody BatchIntrospectionRequest request) {
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new BatchIntrospectionResponse(this.tokenIntrospectionService.introspectAll(request.tokens())));
+    }
+}
@@ -0,0 +1,37 @@
+package com.matt.iam.controllers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.matt.iam.utils.JwkSet;
+import com.matt.iam.utils.JwtUtil;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+    private final JwtUtil jwtUtil;
+
+    // resource servers poll this to verify tokens locally, so let them revalidate cheaply
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(WebRequest request) {
+        JwkSet jwkSet = this.jwtUtil.getJwkSet();
+
+        if (request.checkNotModified(jwkSet.etag())) {
+            return null;
+        }
+
+        return ResponseEntity
+                .ok()
+                .eTag(jwkSet.etag())
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(jwkSet.json());
+    }
+}
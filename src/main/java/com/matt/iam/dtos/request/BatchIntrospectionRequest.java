@@ -0,0 +1,14 @@
+package com.matt.iam.dtos.request;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public record BatchIntrospectionRequest(
+    @NotEmpty(message = "Tokens is a required field")
+    @Size(max = 100, message = "At most 100 tokens can be introspected per request")
+    List<@NotBlank(message = "Tokens must not be blank") String> tokens
+) {
+}
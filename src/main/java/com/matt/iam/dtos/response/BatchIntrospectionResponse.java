@@ -0,0 +1,8 @@
+package com.matt.iam.dtos.response;
+
+import java.util.List;
+
+public record BatchIntrospectionResponse(
+    List<IntrospectionResponse> results
+) {
+}
@@ -0,0 +1,22 @@
+package com.matt.iam.dtos.response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// RFC 7662 shape: an inactive token carries nothing but "active": false
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IntrospectionResponse(
+    boolean active,
+    String sub,
+    List<String> roles,
+    List<String> permissions,
+    Long exp,
+    Long iat,
+    String jti,
+    String iss
+) {
+    public static IntrospectionResponse inactive() {
+        return new IntrospectionResponse(false, null, null, null, null, null, null, null);
+    }
+}
@@ -1,6 +1,7 @@
 package com.matt.iam.entities;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 import jakarta.persistence.Column;
@@ -8,6 +9,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -21,20 +23,22 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "blacklisted_tokens")
+// expires_at serves the reaper's batched deletes and the revocation index rebuild
+@Table(name = "blacklisted_tokens", indexes = @Index(name = "idx_blacklisted_tokens_expires_at", columnList = "expires_at"))
 public class BlacklistedToken {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(length = 1024, nullable = false, unique = true)
-    private String token;
+    // SHA-256 of the raw JWT, the token itself is never stored
+    @Column(name = "token_hash", length = 32, nullable = false, unique = true)
+    private byte[] tokenHash;
 
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
 
     @Column(name = "revoked_at", nullable = false)
-    private LocalDateTime revokedAt = LocalDateTime.now();
+    private LocalDateTime revokedAt = LocalDateTime.now(ZoneOffset.UTC);
 
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
@@ -1,6 +1,7 @@
 package com.matt.iam.entities;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 import jakarta.persistence.Column;
@@ -8,6 +9,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -21,21 +23,36 @@ import lombok.Setter;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "refresh_tokens")
+// expires_at serves the reaper's batched deletes, user_id the per-user session cap and
+// rotated_at the revocation index rebuild. The upgrade script makes the user_id index
+// partial on live sessions, which @Index cannot express
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at"),
+    @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id"),
+    @Index(name = "idx_refresh_tokens_rotated_at", columnList = "rotated_at")
+})
 public class RefreshToken {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(length = 1024, nullable = false, unique = true)
-    private String token;
+    // SHA-256 of the raw JWT, the token itself is never stored
+    @Column(name = "token_hash", length = 32, nullable = false, unique = true)
+    private byte[] tokenHash;
+
+    // one row per login session, rotated in place on every refresh
+    @Column(name = "family_id", nullable = false, unique = true)
+    private UUID familyId;
+
+    @Column(nullable = false)
+    private int generation = 0;
 
     @ManyToOne
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     @Column(name = "created_at", nullable = false)
-    private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime createdAt = LocalDateTime.now(ZoneOffset.UTC);
 
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
@@ -43,6 +60,9 @@ public class RefreshToken {
     @Column(name = "last_used_at")
     private LocalDateTime lastUsedAt;
 
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
     @Column(name = "is_revoked", nullable = false)
     private Boolean isRevoked = false;
 }
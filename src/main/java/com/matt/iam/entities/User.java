@@ -1,6 +1,7 @@
 package com.matt.iam.entities;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -64,7 +65,7 @@ public class User implements UserDetails {
     private boolean isEnabled = false;
 
     @Column(name = "created_at", nullable = false)
-    private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime createdAt = LocalDateTime.now(ZoneOffset.UTC);
 
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
@@ -78,6 +79,10 @@ public class User implements UserDetails {
     @Column(name = "account_locked_until")
     private LocalDateTime accountLockedUntil;
 
+    // embedded in every token as "ver", bumping it revokes all of the user's tokens
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion = 0;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         Set<SimpleGrantedAuthority> authorities = new HashSet<>();
@@ -110,7 +115,7 @@ public class User implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return accountLockedUntil == null || accountLockedUntil.isBefore(LocalDateTime.now());
+        return accountLockedUntil == null || accountLockedUntil.isBefore(LocalDateTime.now(ZoneOffset.UTC));
     }
 
     @Override
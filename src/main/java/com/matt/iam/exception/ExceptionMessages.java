@@ -14,6 +14,8 @@ public class ExceptionMessages {
     public static final String TOO_MANY_ATTEMPTS = "Too many login attempts. Try again later";
     public static final String TOKEN_EXPIRED = "Refresh token has expired";
     public static final String TOKEN_NOT_BELONG_TO_USER = "Token does not belong to the user";
+    public static final String TOKEN_REUSE_DETECTED = "Refresh token was already used. The session was revoked";
+    public static final String SERVER_BUSY = "Server is busy. Try again later";
 
     private ExceptionMessages() {}
 }
@@ -0,0 +1,13 @@
+package com.matt.iam.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a superseded refresh token is presented again. Kept as its own type so
+ * the session revocation that precedes it is not rolled back.
+ */
+public class TokenReuseException extends CustomException {
+    public TokenReuseException() {
+        super(ExceptionMessages.TOKEN_REUSE_DETECTED, HttpStatus.FORBIDDEN);
+    }
+}
@@ -0,0 +1,145 @@
+package com.matt.iam.infra;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.matt.iam.utils.TokenVerification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for the authentication hot paths. Everything is registered up front so
+ * recording on a request is a field read and an atomic update, with no registry
+ * lookups or tag allocation per call.
+ */
+@Component
+public class AuthMetrics {
+    public enum Operation {
+        REGISTER,
+        LOGIN,
+        REFRESH,
+        LOGOUT
+    }
+
+    private final Map<Operation, Timer> succeeded = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> failed = new EnumMap<>(Operation.class);
+    private final Map<TokenVerification.Status, Counter> verifications = new EnumMap<>(TokenVerification.Status.class);
+    private final Counter revoked;
+    private final Counter unknownUser;
+    private final Counter disabledUser;
+    private final Counter lockouts;
+    private final Timer signing;
+    private final Timer verifyStage;
+    private final Timer revocationStage;
+    private final Timer userLookupStage;
+
+    public AuthMetrics(MeterRegistry meterRegistry) {
+        for (Operation operation : Operation.values()) {
+            this.succeeded.put(operation, operationTimer(meterRegistry, operation, "success"));
+            this.failed.put(operation, operationTimer(meterRegistry, operation, "failure"));
+        }
+
+        for (TokenVerification.Status status : TokenVerification.Status.values()) {
+            this.verifications.put(status, verificationCounter(meterRegistry, tagValue(status)));
+        }
+        this.revoked = verificationCounter(meterRegistry, "revoked");
+        this.unknownUser = verificationCounter(meterRegistry, "unknown_user");
+        this.disabledUser = verificationCounter(meterRegistry, "disabled_user");
+
+        this.lockouts = Counter.builder("iam.auth.lockouts").register(meterRegistry);
+        this.signing = Timer.builder("iam.token.sign").register(meterRegistry);
+        this.verifyStage = stageTimer(meterRegistry, "verify");
+        this.revocationStage = stageTimer(meterRegistry, "revocation");
+        this.userLookupStage = stageTimer(meterRegistry, "user_lookup");
+    }
+
+    /**
+     * Times {@code action} under {@code iam.auth.operation}, tagged with whether it
+     * returned or threw.
+     */
+    public <T> T record(Operation operation, Supplier<T> action) {
+        long start = System.nanoTime();
+
+        try {
+            T result = action.get();
+            this.succeeded.get(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            this.failed.get(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    public void record(Operation operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void tokenVerified(TokenVerification.Status status) {
+        this.verifications.get(status).increment();
+    }
+
+    public void tokenRevoked() {
+        this.revoked.increment();
+    }
+
+    public void tokenUserUnknown() {
+        this.unknownUser.increment();
+    }
+
+    public void tokenUserDisabled() {
+        this.disabledUser.increment();
+    }
+
+    public void accountLocked() {
+        this.lockouts.increment();
+    }
+
+    public void recordSigning(long nanos) {
+        this.signing.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordVerifyStage(long nanos) {
+        this.verifyStage.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRevocationStage(long nanos) {
+        this.revocationStage.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUserLookupStage(long nanos) {
+        this.userLookupStage.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, Operation operation, String outcome) {
+        return Timer.builder("iam.auth.operation")
+            .tag("operation", tagValue(operation))
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Counter verificationCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("iam.token.verifications")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("iam.auth.filter")
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
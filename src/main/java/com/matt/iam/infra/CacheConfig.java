@@ -0,0 +1,59 @@
+package com.matt.iam.infra;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Local caches for data read on almost every request but rarely written. Evictions
+ * triggered inside a transaction are applied after it commits. Stats are recorded so
+ * the actuator exposes hit ratios as {@code cache.gets}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String ROLES = "roles";
+    public static final String USER_AUTHORIZATIONS = "userAuthorizations";
+    public static final String USER_TOKEN_STATES = "userTokenStates";
+
+    @Bean
+    CacheManager cacheManager(
+            @Value("${cache.roles.max-size:100}") long rolesMaxSize,
+            @Value("${cache.roles.ttl-ms:600000}") long rolesTtlMillis,
+            @Value("${cache.user-authorizations.max-size:10000}") long userAuthorizationsMaxSize,
+            @Value("${cache.user-authorizations.ttl-ms:30000}") long userAuthorizationsTtlMillis,
+            @Value("${cache.user-token-states.max-size:100000}") long userTokenStatesMaxSize,
+            @Value("${cache.user-token-states.ttl-ms:30000}") long userTokenStatesTtlMillis) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+
+        cacheManager.registerCustomCache(ROLES, Caffeine.newBuilder()
+            .maximumSize(rolesMaxSize)
+            .expireAfterWrite(Duration.ofMillis(rolesTtlMillis))
+            .recordStats()
+            .build());
+
+        // the TTL bounds how long a change made by another instance can go unnoticed
+        cacheManager.registerCustomCache(USER_AUTHORIZATIONS, Caffeine.newBuilder()
+            .maximumSize(userAuthorizationsMaxSize)
+            .expireAfterWrite(Duration.ofMillis(userAuthorizationsTtlMillis))
+            .recordStats()
+            .build());
+
+        // two fields per user, so it can hold far more users than the snapshots above
+        cacheManager.registerCustomCache(USER_TOKEN_STATES, Caffeine.newBuilder()
+            .maximumSize(userTokenStatesMaxSize)
+            .expireAfterWrite(Duration.ofMillis(userTokenStatesTtlMillis))
+            .recordStats()
+            .build());
+
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
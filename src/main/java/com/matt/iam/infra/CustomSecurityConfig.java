@@ -1,22 +1,28 @@
 package com.matt.iam.infra;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.matt.iam.services.TokenIntrospectionService;
+
 import lombok.RequiredArgsConstructor;
 
 @Configuration
@@ -37,7 +43,16 @@ public class CustomSecurityConfig {
                         "/register",
                         "/login",
                         "/refresh",
-                        "/logout").permitAll();
+                        "/logout",
+                        "/.well-known/jwks.json",
+                        // actuator is only served on management.server.port, kept off the public network
+                        "/actuator/health",
+                        "/actuator/prometheus").permitAll();
+                    authorizeHttp.requestMatchers("/introspect", "/introspect/batch")
+                        .hasAuthority(TokenIntrospectionService.AUTHORITY);
+                    authorizeHttp.requestMatchers("/actuator/jwtkeys", "/actuator/jwtkeys/**")
+                        .hasAuthority(JwtKeysEndpoint.AUTHORITY);
+                    authorizeHttp.requestMatchers("/actuator/sessions").hasAuthority(SessionsEndpoint.AUTHORITY);
                     authorizeHttp.anyRequest().authenticated();
                 }
             )
@@ -61,12 +76,24 @@ public class CustomSecurityConfig {
     }
 
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    PasswordEncoder passwordEncoder(
+            PasswordHashingExecutor passwordHashingExecutor,
+            @Value("${security.password.encoder:bcrypt}") String encoderId,
+            @Value("${security.password.bcrypt.strength:10}") int bcryptStrength,
+            @Value("${security.password.pbkdf2.iterations:310000}") int pbkdf2Iterations,
+            @Value("${security.password.argon2.memory-kib:19456}") int argon2MemoryKib,
+            @Value("${security.password.argon2.iterations:2}") int argon2Iterations
+    ) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder(
+            "", 16, pbkdf2Iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+        encoders.put("argon2", new Argon2PasswordEncoder(16, 32, 1, argon2MemoryKib, argon2Iterations));
 
-    @Bean
-    AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
+        // hashes stored before ids were prefixed are plain bcrypt, upgradeEncoding flags them for rehash
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encoderId, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+
+        return new PooledPasswordEncoder(delegating, passwordHashingExecutor);
     }
 }
@@ -0,0 +1,27 @@
+package com.matt.iam.infra;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single node transport, also used to exercise propagation in tests.
+ */
+@Component
+@ConditionalOnProperty(name = "revocation.bus", havingValue = "in-process")
+public class InProcessRevocationEventBus implements RevocationEventBus {
+    private final List<Consumer<RevocationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RevocationEvent event) {
+        TransactionHooks.afterCommit(() -> this.listeners.forEach(listener -> listener.accept(event)));
+    }
+
+    @Override
+    public void subscribe(Consumer<RevocationEvent> listener) {
+        this.listeners.add(listener);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -12,10 +13,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.matt.iam.entities.User;
-import com.matt.iam.repositories.BlacklistedTokenRepository;
-import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.services.UserAuthorization;
+import com.matt.iam.services.UserAuthorizationService;
+import com.matt.iam.services.UserTokenState;
+import com.matt.iam.utils.JwtClaims;
 import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenVerification;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -27,8 +30,14 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class JwtCustomFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
-    private final UserRepository userRepository;
-    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final UserAuthorizationService userAuthorizationService;
+    private final RevocationIndex revocationIndex;
+    private final AuthMetrics authMetrics;
+
+    // takes roles and permissions from the token claims instead of the user snapshot, so
+    // a role change reaches requests only once the access token is renewed
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -42,42 +51,90 @@ public class JwtCustomFilter extends OncePerRequestFilter {
 
         token = token.replace("Bearer ", "");
 
-        if (blacklistedTokenRepository.existsByToken(token)) {
+        long start = System.nanoTime();
+        TokenVerification verification = this.jwtUtil.verifyToken(token);
+        long verified = System.nanoTime();
+        this.authMetrics.recordVerifyStage(verified - start);
+
+        if (verification.claims() == null) {
+            this.authMetrics.tokenVerified(verification.status());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.getWriter().write("Token has been revoked");
+            response.getWriter().write("Token failed validation");
             return;
         }
 
-        String email = this.jwtUtil.validateToken(token);
-
-        if (email == null) {
+        // a refresh token outlives access tokens by days and must not be usable as one
+        if (!verification.claims().isAccessToken()) {
+            this.authMetrics.tokenVerified(TokenVerification.Status.INVALID_CLAIMS);
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Token failed validation");
             return;
         }
 
-        Optional<User> optUser = this.userRepository.findByEmail(email);
+        JwtClaims claims = verification.claims();
+        boolean revoked = this.revocationIndex.isRevoked(token, claims);
+        long revocationChecked = System.nanoTime();
+        this.authMetrics.recordRevocationStage(revocationChecked - verified);
 
-        if (optUser.isEmpty()) {
+        if (revoked) {
+            this.authMetrics.tokenRevoked();
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("Token has been revoked");
+            return;
+        }
+
+        // stateless mode only looks up what can revoke the token, never roles or permissions
+        Optional<UserAuthorization> optUser = this.statelessPrincipal
+                ? Optional.empty()
+                : this.userAuthorizationService.findByEmail(claims.subject());
+        Optional<UserTokenState> optState = this.statelessPrincipal
+                ? this.userAuthorizationService.findTokenStateByEmail(claims.subject())
+                : optUser.map(UserAuthorization::tokenState);
+        this.authMetrics.recordUserLookupStage(System.nanoTime() - revocationChecked);
+
+        if (optState.isEmpty()) {
+            this.authMetrics.tokenUserUnknown();
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("User not found for given token");
             return;
         }
 
-        User user = optUser.get();
-        List<GrantedAuthority> authorities = new ArrayList<>();
+        UserTokenState state = optState.get();
+
+        if (!Integer.valueOf(state.tokenVersion()).equals(claims.tokenVersion())) {
+            this.authMetrics.tokenRevoked();
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("Token has been revoked");
+            return;
+        }
+
+        // same rule as introspection, a disabled account keeps no valid tokens
+        if (!state.enabled()) {
+            this.authMetrics.tokenUserDisabled();
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("User account is disabled");
+            return;
+        }
 
-        user.getRoles().forEach(role -> 
-            authorities.add(new SimpleGrantedAuthority("ROLE_" + role.getName())));
+        this.authMetrics.tokenVerified(verification.status());
 
-        user.getRoles().forEach(role -> 
-            role.getPermissions().forEach(per ->
-                authorities.add(new SimpleGrantedAuthority(per.getName()))));
+        // the cached snapshot is authoritative, token claims may lag behind a role change
+        List<String> roles = this.statelessPrincipal ? claims.roles() : optUser.get().roles();
+        List<String> permissions = this.statelessPrincipal ? claims.permissions() : optUser.get().permissions();
+        TokenPrincipal principal = new TokenPrincipal(claims.subject(), roles, permissions);
 
-        var authentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
+        var authentication = new UsernamePasswordAuthenticationToken(principal, null, toAuthorities(roles, permissions));
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         filterChain.doFilter(request, response);
     }
 
+    private static List<GrantedAuthority> toAuthorities(List<String> roles, List<String> permissions) {
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size() + permissions.size());
+
+        roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+        permissions.forEach(per -> authorities.add(new SimpleGrantedAuthority(per)));
+
+        return authorities;
+    }
 }
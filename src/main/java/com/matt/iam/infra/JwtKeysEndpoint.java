@@ -0,0 +1,70 @@
+package com.matt.iam.infra;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.matt.iam.services.SigningKeyService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Operator hook for signing key rotation, restricted to the
+ * {@value #AUTHORITY} authority in {@link CustomSecurityConfig}. Secrets are never
+ * sent here: a new HMAC key is first added to {@code jwt.secret.previous-keys} on every
+ * node, then made current by id.
+ * <ul>
+ * <li>{@code POST /actuator/jwtkeys {"keyId": ...}} makes a provisioned HMAC key current</li>
+ * <li>{@code DELETE /actuator/jwtkeys/{keyId}} retires a previous key</li>
+ * </ul>
+ * Rotation stays within the algorithm of the current signer, so with ES256 signing an
+ * HMAC key is refused instead of silently dropping out of the published JWKS.
+ */
+@Component
+@Endpoint(id = "jwtkeys")
+@RequiredArgsConstructor
+public class JwtKeysEndpoint {
+    public static final String AUTHORITY = "MANAGE_SIGNING_KEYS";
+    private final SigningKeyService signingKeyService;
+
+    @ReadOperation
+    public Map<String, String> currentKey() {
+        return Map.of("currentKeyId", this.signingKeyService.currentKeyId());
+    }
+
+    @WriteOperation
+    public void rotate(String keyId) {
+        // key ids end up in the "kid:secret" config format and in bus payloads
+        if (keyId == null || !keyId.matches("[A-Za-z0-9._-]+")) {
+            throw new InvalidEndpointRequestException("Invalid key id", "keyId may only contain letters, digits, '.', '_' and '-'");
+        }
+
+        try {
+            this.signingKeyService.rotate(keyId);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException("Unknown key id",
+                "No signing key " + keyId + ", add it to jwt.secret.previous-keys on every node first");
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException("Algorithm mismatch", e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public void retire(@Selector String keyId) {
+        if (!this.signingKeyService.hasKey(keyId)) {
+            throw new InvalidEndpointRequestException("Unknown key id", "No signing key " + keyId);
+        }
+
+        if (keyId.equals(this.signingKeyService.currentKeyId())) {
+            throw new InvalidEndpointRequestException("Current key", "The current signing key cannot be retired");
+        }
+
+        this.signingKeyService.retire(keyId);
+    }
+}
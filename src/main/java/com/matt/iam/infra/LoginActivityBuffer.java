@@ -0,0 +1,109 @@
+package com.matt.iam.infra;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind buffer for {@code users.last_login_at}. The timestamp is telemetry, so
+ * logins only record it in memory and the pending values are written as one JDBC batch
+ * on a schedule, when the buffer grows past its limit, and on shutdown. Only the
+ * shutdown flush runs on the caller's thread.
+ */
+@Component
+public class LoginActivityBuffer {
+    private static final String UPDATE_LAST_LOGIN =
+        "update users set last_login_at = ? where id = ? and (last_login_at is null or last_login_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final int maxPending;
+    private final Map<UUID, LocalDateTime> pendingLogins = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean overflowFlushScheduled = new AtomicBoolean();
+
+    public LoginActivityBuffer(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            TaskScheduler taskScheduler,
+            @Value("${activity.write-behind.max-pending:1000}") int maxPending
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.taskScheduler = taskScheduler;
+        this.maxPending = maxPending;
+    }
+
+    public void recordLogin(UUID userId, LocalDateTime loggedInAt) {
+        this.pendingLogins.merge(userId, loggedInAt, (current, next) -> next.isAfter(current) ? next : current);
+
+        // the login that crosses the limit must not wait for the batch, and one queued
+        // flush is enough however many logins arrive before it runs
+        if (this.pendingLogins.size() >= this.maxPending && this.overflowFlushScheduled.compareAndSet(false, true)) {
+            this.taskScheduler.schedule(() -> {
+                this.overflowFlushScheduled.set(false);
+                flush();
+            }, Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${activity.write-behind.flush-interval-ms:5000}")
+    public void flush() {
+        // a flush already in progress will pick up whatever is pending
+        if (this.flushLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                this.flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        this.flushLock.lock();
+
+        try {
+            drain();
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return this.pendingLogins.size();
+    }
+
+    private void drain() {
+        List<Object[]> batch = new ArrayList<>(this.pendingLogins.size());
+
+        this.pendingLogins.forEach((userId, loggedInAt) -> {
+            // only drop the entry if no newer login replaced it meanwhile
+            if (this.pendingLogins.remove(userId, loggedInAt)) {
+                // bound as a LocalDateTime, a Timestamp would shift it by the JVM's zone
+                batch.add(new Object[] { loggedInAt, userId, loggedInAt });
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            this.transactionTemplate.executeWithoutResult(
+                status -> this.jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN, batch));
+        }
+    }
+}
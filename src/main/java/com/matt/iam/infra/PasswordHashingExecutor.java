@@ -0,0 +1,152 @@
+package com.matt.iam.infra;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.matt.iam.exception.CustomException;
+import com.matt.iam.exception.ExceptionMessages;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Dedicated, bounded pool for CPU-heavy password hashing. Keeping the work off the
+ * servlet threads means a burst of registrations or logins cannot starve token
+ * refreshes and protected requests; once the queue is full callers get a 503
+ * immediately instead of piling up. The pool uses platform threads on purpose: with
+ * virtual request threads the caller just parks on the future, so hashing never ties
+ * up the carrier threads that run every other request.
+ */
+@Component
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Counter rejected;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public PasswordHashingExecutor(
+            @Value("${security.password.hashing.pool-size:0}") int poolSize,
+            @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password.hashing.timeout-ms:5000}") long timeoutMillis,
+            MeterRegistry meterRegistry
+    ) {
+        // a pool size of 0 means one hashing thread per available processor
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> new HashingThread(runnable, "password-hash-" + counter.incrementAndGet()),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder("iam.password.hashing.queue.wait").register(meterRegistry);
+        this.rejected = Counter.builder("iam.password.hashing.rejected").register(meterRegistry);
+
+        Gauge.builder("iam.password.hashing.queue.depth", this.executor, e -> e.getQueue().size())
+            .register(meterRegistry);
+        Gauge.builder("iam.password.hashing.active", this.executor, ThreadPoolExecutor::getActiveCount)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code task} on the hashing pool and waits for its result. Throws a 503
+     * {@link CustomException} when the pool is saturated or the task takes too long.
+     */
+    public <T> T execute(String operation, Callable<T> task) {
+        // background jobs already on the pool hash inline instead of waiting on their own queue
+        if (Thread.currentThread() instanceof HashingThread) {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Timer timer = timer(operation);
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+
+        try {
+            future = this.executor.submit(() -> {
+                this.queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            throw new CustomException(ExceptionMessages.SERVER_BUSY, e, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        try {
+            return future.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CustomException(ExceptionMessages.SERVER_BUSY, e, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CustomException(ExceptionMessages.SERVER_BUSY, e, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Queues {@code task} without waiting for it. Background work is best effort and is
+     * simply dropped when the pool is saturated.
+     */
+    public boolean submit(String operation, Runnable task) {
+        Timer timer = timer(operation);
+
+        try {
+            this.executor.execute(() -> timer.record(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            this.rejected.increment();
+            return false;
+        }
+    }
+
+    // operations are a handful of constants, so the timers are looked up once each
+    private Timer timer(String operation) {
+        return this.timers.computeIfAbsent(operation, op -> Timer.builder("iam.password.hashing")
+            .tag("operation", op)
+            .register(this.meterRegistry));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private static final class HashingThread extends Thread {
+        HashingThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.matt.iam.infra;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Runs encode and matches of the wrapped encoder on the {@link PasswordHashingExecutor}.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public PooledPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.executor.execute("encode", () -> this.delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return this.executor.execute("matches", () -> this.delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,153 @@
+package com.matt.iam.infra;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Default transport, built on Postgres LISTEN/NOTIFY so no extra infrastructure is
+ * needed. NOTIFY is transactional: issued on the connection of the surrounding
+ * transaction, it is only delivered if that transaction commits.
+ * <p>
+ * The listener thread holds one dedicated connection per node, opened outside the
+ * Hikari pool so it never takes a slot from request threads. After it reconnects, a
+ * {@link RevocationEvent.Resync} is delivered because notifications sent while it was
+ * disconnected are lost.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "revocation.bus", havingValue = "postgres", matchIfMissing = true)
+public class PostgresRevocationEventBus implements RevocationEventBus {
+    private static final String CHANNEL = "iam_revocations";
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PGSimpleDataSource listenerDataSource = new PGSimpleDataSource();
+    private final int pollTimeoutMs;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<Consumer<RevocationEvent>> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresRevocationEventBus(
+            JdbcTemplate jdbcTemplate,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${revocation.bus.poll-timeout-ms:500}") int pollTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.listenerDataSource.setURL(url);
+        this.listenerDataSource.setUser(username);
+        this.listenerDataSource.setPassword(password);
+        this.listenerDataSource.setApplicationName("iam-revocation-listener");
+    }
+
+    @Override
+    public void publish(RevocationEvent event) {
+        String payload = this.nodeId + "|" + RevocationEvent.encode(event);
+
+        this.jdbcTemplate.execute("select pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, payload);
+            return statement.execute();
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<RevocationEvent> listener) {
+        this.listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void start() {
+        this.running = true;
+        this.listenerThread = Thread.ofPlatform().daemon().name("revocation-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.running = false;
+        this.listenerThread.interrupt();
+        this.listenerThread.join(this.pollTimeoutMs * 2L);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+
+        while (this.running) {
+            try (Connection connection = this.listenerDataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                if (reconnecting) {
+                    deliver(new RevocationEvent.Resync());
+                }
+
+                while (this.running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(this.pollTimeoutMs);
+
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!this.running) {
+                    return;
+                }
+
+                log.warn("Revocation listener lost its connection, reconnecting", e);
+                reconnecting = true;
+
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        int separator = payload.indexOf('|');
+
+        // this node already applied its own events
+        if (separator < 0 || payload.substring(0, separator).equals(this.nodeId)) {
+            return;
+        }
+
+        try {
+            deliver(RevocationEvent.decode(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revocation event {}", payload, e);
+        }
+    }
+
+    private void deliver(RevocationEvent event) {
+        this.listeners.forEach(listener -> listener.accept(event));
+    }
+}
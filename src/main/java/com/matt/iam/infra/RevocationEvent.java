@@ -0,0 +1,55 @@
+package com.matt.iam.infra;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Revocation state change that every node must apply to its local caches. Events are
+ * encoded as short pipe separated strings so they fit in a Postgres NOTIFY payload.
+ * Signing key changes travel the same way, since a retired key revokes every token
+ * it signed.
+ */
+public sealed interface RevocationEvent {
+    record TokenRevoked(String fingerprint, LocalDateTime expiresAt) implements RevocationEvent {}
+
+    record FamilySuperseded(UUID familyId, int generation) implements RevocationEvent {}
+
+    // a null email means every user
+    record UserSessionsRevoked(String email) implements RevocationEvent {}
+
+    // only the key id, every node reads the secret from its own configuration
+    record SigningKeyRotated(String keyId) implements RevocationEvent {}
+
+    record SigningKeyRetired(String keyId) implements RevocationEvent {}
+
+    // events may have been missed, local state has to be reloaded from the database
+    record Resync() implements RevocationEvent {}
+
+    static String encode(RevocationEvent event) {
+        return switch (event) {
+            case TokenRevoked e -> "T|" + e.fingerprint() + "|" + e.expiresAt().toEpochSecond(ZoneOffset.UTC);
+            case FamilySuperseded e -> "F|" + e.familyId() + "|" + e.generation();
+            case UserSessionsRevoked e -> e.email() == null ? "A" : "U|" + e.email();
+            case SigningKeyRotated e -> "K|" + e.keyId();
+            case SigningKeyRetired e -> "X|" + e.keyId();
+            case Resync e -> "R";
+        };
+    }
+
+    static RevocationEvent decode(String payload) {
+        String[] parts = payload.split("\\|", 3);
+
+        return switch (parts[0]) {
+            case "T" -> new TokenRevoked(parts[1],
+                LocalDateTime.ofEpochSecond(Long.parseLong(parts[2]), 0, ZoneOffset.UTC));
+            case "F" -> new FamilySuperseded(UUID.fromString(parts[1]), Integer.parseInt(parts[2]));
+            case "U" -> new UserSessionsRevoked(payload.substring(2));
+            case "A" -> new UserSessionsRevoked(null);
+            case "K" -> new SigningKeyRotated(parts[1]);
+            case "X" -> new SigningKeyRetired(parts[1]);
+            case "R" -> new Resync();
+            default -> throw new IllegalArgumentException("Unknown revocation event: " + payload);
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.matt.iam.infra;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries revocations between IAM nodes so each one keeps its local index warm.
+ * Implementations deliver an event only if the transaction that published it commits,
+ * and may deliver it back to the publishing node, so listeners must be idempotent.
+ */
+public interface RevocationEventBus {
+    void publish(RevocationEvent event);
+
+    void subscribe(Consumer<RevocationEvent> listener);
+}
@@ -0,0 +1,197 @@
+package com.matt.iam.infra;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenHashUtil;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Checks authenticated requests for revocation without touching the database on the
+ * common path. Blacklisted tokens go into a {@link RotatingBloomFilter} bucketed by
+ * expiry; a token the filter has never seen is not revoked, and only filter hits are
+ * confirmed against {@code blacklisted_tokens}, with the answer cached briefly.
+ * <p>
+ * Sessions that were rotated or revoked are tracked by family instead: a token whose
+ * generation is below the family's floor is rejected. A floor only has to outlive the
+ * access tokens issued before it, so it is kept for one access token lifetime.
+ * <p>
+ * Every change is published on the {@link RevocationEventBus} so the other nodes apply
+ * it too, keeping the authentication path off the database on all of them.
+ */
+@Component
+public class RevocationIndex {
+    private static final int REVOKED_FAMILY = Integer.MAX_VALUE;
+
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RevocationEventBus revocationEventBus;
+
+    private final RotatingBloomFilter revokedTokens;
+    private final Cache<String, Boolean> confirmations;
+    private final Map<UUID, FamilyFloor> familyFloors = new ConcurrentHashMap<>();
+    private final AtomicLong additions = new AtomicLong();
+
+    public RevocationIndex(
+            BlacklistedTokenRepository blacklistedTokenRepository,
+            RefreshTokenRepository refreshTokenRepository,
+            RevocationEventBus revocationEventBus,
+            @Value("${revocation.bloom.expected-insertions:100000}") int expectedInsertions,
+            @Value("${revocation.bloom.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${revocation.bloom.confirmations.max-size:10000}") long maxConfirmations) {
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.revocationEventBus = revocationEventBus;
+        // a blacklisted access token expires within one lifetime, so three buckets cover it
+        this.revokedTokens = new RotatingBloomFilter(
+            Duration.ofSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS / 3), expectedInsertions, falsePositiveRate);
+        this.confirmations = Caffeine.newBuilder()
+            .maximumSize(maxConfirmations)
+            .expireAfterWrite(Duration.ofSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS))
+            .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        this.revocationEventBus.subscribe(this::apply);
+    }
+
+    public void load() {
+        LocalDateTime now = now();
+
+        this.blacklistedTokenRepository.findByExpiresAtAfter(now)
+            .forEach(row -> add(row.getTokenHash(), row.getExpiresAt()));
+
+        this.refreshTokenRepository.findByRotatedAtAfter(now.minusSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS))
+            .forEach(row -> this.familyFloors.merge(row.getFamilyId(),
+                new FamilyFloor(Boolean.TRUE.equals(row.getIsRevoked()) ? REVOKED_FAMILY : row.getGeneration(),
+                    row.getRotatedAt().plusSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS)),
+                FamilyFloor::max));
+    }
+
+    /**
+     * Adds the token to the index. Inside a transaction this happens only once it
+     * commits, so a rolled back revocation never rejects a still valid token.
+     */
+    public void revoke(String token, LocalDateTime expiresAt) {
+        if (!expiresAt.isAfter(now())) {
+            return;
+        }
+
+        byte[] digest = TokenHashUtil.hash(token);
+        TransactionHooks.afterCommit(() -> add(digest, expiresAt));
+        this.revocationEventBus.publish(new RevocationEvent.TokenRevoked(TokenHashUtil.encode(digest), expiresAt));
+    }
+
+    /**
+     * Rejects every token of the family issued before {@code generation}.
+     */
+    public void supersede(UUID familyId, int generation) {
+        raiseFloor(familyId, generation);
+    }
+
+    public void revokeFamily(UUID familyId) {
+        raiseFloor(familyId, REVOKED_FAMILY);
+    }
+
+    public boolean isRevoked(String token, JwtClaims claims) {
+        byte[] digest = TokenHashUtil.hash(token);
+
+        if (this.revokedTokens.mightContain(digest) && isBlacklisted(digest)) {
+            return true;
+        }
+
+        if (claims.familyId() == null || claims.generation() == null) {
+            return false;
+        }
+
+        FamilyFloor floor = this.familyFloors.get(claims.familyId());
+        return floor != null && claims.generation() < floor.generation();
+    }
+
+    public int size() {
+        return this.revokedTokens.approximateSize() + this.familyFloors.size();
+    }
+
+    @Scheduled(fixedDelayString = "${revocation.index.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        LocalDateTime now = now();
+        this.revokedTokens.evictExpired(now);
+        this.familyFloors.values().removeIf(floor -> !floor.expiresAt().isAfter(now));
+    }
+
+    private void add(byte[] digest, LocalDateTime expiresAt) {
+        this.revokedTokens.put(digest, expiresAt);
+        this.additions.incrementAndGet();
+        // an earlier "not revoked" answer for this token is no longer true
+        this.confirmations.invalidate(TokenHashUtil.encode(digest));
+    }
+
+    // queried outside the cache: a JDBC call inside its compute would hold the entry's
+    // lock and pin the calling virtual thread for the length of the round trip
+    private boolean isBlacklisted(byte[] digest) {
+        String fingerprint = TokenHashUtil.encode(digest);
+        Boolean confirmed = this.confirmations.getIfPresent(fingerprint);
+
+        if (confirmed != null) {
+            return confirmed;
+        }
+
+        long additionsBefore = this.additions.get();
+        boolean blacklisted = this.blacklistedTokenRepository.existsByTokenHash(digest);
+
+        // a "not revoked" answer read before a concurrent add() must not outlive its invalidation
+        if (blacklisted || this.additions.get() == additionsBefore) {
+            this.confirmations.put(fingerprint, blacklisted);
+        }
+
+        return blacklisted;
+    }
+
+    private void raiseFloor(UUID familyId, int generation) {
+        FamilyFloor floor = new FamilyFloor(generation, now().plusSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS));
+        TransactionHooks.afterCommit(() -> this.familyFloors.merge(familyId, floor, FamilyFloor::max));
+        this.revocationEventBus.publish(new RevocationEvent.FamilySuperseded(familyId, generation));
+    }
+
+    // revocations made on other nodes, applying one twice is harmless
+    private void apply(RevocationEvent event) {
+        switch (event) {
+            case RevocationEvent.TokenRevoked e -> add(TokenHashUtil.decode(e.fingerprint()), e.expiresAt());
+            case RevocationEvent.FamilySuperseded e -> this.familyFloors.merge(e.familyId(),
+                new FamilyFloor(e.generation(), now().plusSeconds(JwtUtil.ACCESS_TOKEN_TTL_SECONDS)), FamilyFloor::max);
+            case RevocationEvent.Resync e -> load();
+            case RevocationEvent.UserSessionsRevoked e -> { }
+            case RevocationEvent.SigningKeyRotated e -> { }
+            case RevocationEvent.SigningKeyRetired e -> { }
+        }
+    }
+
+    // token expirations are stored as UTC wall-clock times, see JwtUtil
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private record FamilyFloor(int generation, LocalDateTime expiresAt) {
+        static FamilyFloor max(FamilyFloor a, FamilyFloor b) {
+            return new FamilyFloor(Math.max(a.generation, b.generation),
+                a.expiresAt.isAfter(b.expiresAt) ? a.expiresAt : b.expiresAt);
+        }
+    }
+}
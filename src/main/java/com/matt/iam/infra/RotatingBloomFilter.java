@@ -0,0 +1,113 @@
+package com.matt.iam.infra;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over SHA-256 digests, split into buckets by expiry time. An entry goes
+ * into the bucket whose window contains its expiry, and a bucket is dropped as soon as
+ * its window has passed, so memory follows the number of revocations that can still
+ * matter rather than growing forever.
+ * <p>
+ * {@link #mightContain} never returns false for an entry that was added and is not yet
+ * expired; a true result has to be confirmed by an exact lookup.
+ */
+public class RotatingBloomFilter {
+    private final long bucketSeconds;
+    private final int bitsPerBucket;
+    private final int hashCount;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RotatingBloomFilter(Duration bucketWidth, int expectedInsertionsPerBucket, double falsePositiveRate) {
+        double bits = -expectedInsertionsPerBucket * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+
+        this.bucketSeconds = bucketWidth.toSeconds();
+        this.bitsPerBucket = (int) Math.ceil(bits / Long.SIZE) * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round(bits / expectedInsertionsPerBucket * Math.log(2)));
+    }
+
+    public void put(byte[] digest, LocalDateTime expiresAt) {
+        this.buckets.computeIfAbsent(bucketOf(expiresAt), index -> new Bucket(this.bitsPerBucket)).put(digest);
+    }
+
+    public boolean mightContain(byte[] digest) {
+        for (Bucket bucket : this.buckets.values()) {
+            if (bucket.mightContain(digest)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void evictExpired(LocalDateTime now) {
+        long current = bucketOf(now);
+        this.buckets.keySet().removeIf(index -> index < current);
+    }
+
+    public int approximateSize() {
+        return this.buckets.values().stream().mapToInt(bucket -> bucket.insertions.get()).sum();
+    }
+
+    public int bucketCount() {
+        return this.buckets.size();
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / this.bucketSeconds;
+    }
+
+    private final class Bucket {
+        private final AtomicLongArray bits;
+        private final AtomicInteger insertions = new AtomicInteger();
+
+        Bucket(int size) {
+            this.bits = new AtomicLongArray(size / Long.SIZE);
+        }
+
+        void put(byte[] digest) {
+            long h1 = longAt(digest, 0);
+            long h2 = longAt(digest, 8);
+
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitsPerBucket);
+                long mask = 1L << bit;
+                this.bits.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+            }
+
+            this.insertions.incrementAndGet();
+        }
+
+        boolean mightContain(byte[] digest) {
+            long h1 = longAt(digest, 0);
+            long h2 = longAt(digest, 8);
+
+            for (int i = 0; i < hashCount; i++) {
+                int bit = (int) Math.floorMod(h1 + i * h2, (long) bitsPerBucket);
+
+                if ((this.bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    // the digest is already uniformly distributed, so its bytes serve as the two hashes
+    private static long longAt(byte[] digest, int offset) {
+        long value = 0;
+
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (digest[i] & 0xFF);
+        }
+
+        return value;
+    }
+}
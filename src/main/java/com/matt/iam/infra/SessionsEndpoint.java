@@ -0,0 +1,32 @@
+package com.matt.iam.infra;
+
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.stereotype.Component;
+
+import com.matt.iam.services.AuthService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Incident response hook, restricted to the {@value #AUTHORITY} authority in
+ * {@link CustomSecurityConfig}.
+ * <ul>
+ * <li>{@code DELETE /actuator/sessions} invalidates every token issued so far, for every user and on every node</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "sessions")
+@RequiredArgsConstructor
+public class SessionsEndpoint {
+    public static final String AUTHORITY = "REVOKE_ALL_SESSIONS";
+
+    private final AuthService authService;
+
+    @DeleteOperation
+    public Map<String, Integer> revokeAll() {
+        return Map.of("revokedUsers", this.authService.revokeAllSessionsForAllUsers());
+    }
+}
@@ -0,0 +1,20 @@
+package com.matt.iam.infra;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Principal built from the cached authorization snapshot of a verified token's
+ * subject, or from its claims in stateless mode, so authenticated requests never load
+ * the {@code User} entity.
+ */
+public record TokenPrincipal(
+    String email,
+    List<String> roles,
+    List<String> permissions
+) implements Principal {
+    @Override
+    public String getName() {
+        return this.email;
+    }
+}
@@ -1,11 +1,33 @@
 package com.matt.iam.repositories;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.matt.iam.entities.BlacklistedToken;
 
 public interface BlacklistedTokenRepository extends JpaRepository<BlacklistedToken, UUID> {
-    boolean existsByToken(String token);
+    boolean existsByTokenHash(byte[] tokenHash);
+
+    List<RevokedTokenView> findByExpiresAtAfter(LocalDateTime dateTime);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        delete from blacklisted_tokens
+        where id in (select id from blacklisted_tokens where expires_at < :now limit :batchSize)
+        """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    interface RevokedTokenView {
+        byte[] getTokenHash();
+
+        LocalDateTime getExpiresAt();
+    }
 }
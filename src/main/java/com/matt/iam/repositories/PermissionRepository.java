@@ -3,10 +3,20 @@ package com.matt.iam.repositories;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.matt.iam.entities.Permission;
+import com.matt.iam.infra.CacheConfig;
 
 public interface PermissionRepository extends JpaRepository<Permission, UUID> {
     Optional<Permission> findByName(String name);
+
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.ROLES, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.USER_AUTHORIZATIONS, allEntries = true)
+    })
+    <S extends Permission> S save(S permission);
 }
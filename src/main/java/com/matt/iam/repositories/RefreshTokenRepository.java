@@ -6,20 +6,86 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.matt.iam.entities.RefreshToken;
-import com.matt.iam.entities.User;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
-    Optional<RefreshToken> findByToken(String token);
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
 
-    Optional<RefreshToken> findByTokenAndIsRevokedFalse(String token);
+    Optional<RefreshToken> findByFamilyId(UUID familyId);
 
-    long countByUserAndIsRevokedFalse(User user);
+    List<RotatedFamilyView> findByRotatedAtAfter(LocalDateTime since);
 
-    Optional<RefreshToken> findTopByUserAndIsRevokedFalseOrderByCreatedAtAsc(User user);
+    /**
+     * Moves the session to its next generation, only if nobody rotated it since the
+     * caller read {@code generation}. Returns 0 when the compare-and-set lost.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        update RefreshToken t
+        set t.tokenHash = :tokenHash, t.generation = t.generation + 1, t.expiresAt = :expiresAt,
+            t.rotatedAt = :rotatedAt, t.lastUsedAt = :rotatedAt
+        where t.familyId = :familyId and t.generation = :generation and t.isRevoked = false
+        """)
+    int rotate(@Param("familyId") UUID familyId,
+               @Param("generation") int generation,
+               @Param("tokenHash") byte[] tokenHash,
+               @Param("expiresAt") LocalDateTime expiresAt,
+               @Param("rotatedAt") LocalDateTime rotatedAt);
 
-    List<RefreshToken> findByUserAndExpiresAtBeforeAndIsRevokedFalse(User user, LocalDateTime dateTime);
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.isRevoked = true, t.rotatedAt = :revokedAt where t.familyId = :familyId")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("revokedAt") LocalDateTime revokedAt);
 
-    List<RefreshToken> findByUserAndIsRevokedFalseOrderByCreatedAtDesc(User user);
+    @Transactional
+    @Modifying
+    @Query("update RefreshToken t set t.isRevoked = true, t.lastUsedAt = :lastUsedAt where t.id = :id")
+    int revokeById(@Param("id") UUID id, @Param("lastUsedAt") LocalDateTime lastUsedAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        update RefreshToken t set t.isRevoked = true
+        where t.user.id = :userId and t.isRevoked = false and t.expiresAt < :now
+        """)
+    int revokeExpiredByUserId(@Param("userId") UUID userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Revokes every active token of the user except the {@code keep} most recent ones.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        update refresh_tokens set is_revoked = true
+        where id in (
+            select id from (
+                select id, row_number() over (order by created_at desc) as position
+                from refresh_tokens
+                where user_id = :userId and is_revoked = false
+            ) ranked
+            where ranked.position > :keep
+        )
+        """, nativeQuery = true)
+    int revokeAllButNewest(@Param("userId") UUID userId, @Param("keep") int keep);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        delete from refresh_tokens
+        where id in (select id from refresh_tokens where expires_at < :now limit :batchSize)
+        """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    interface RotatedFamilyView {
+        UUID getFamilyId();
+        int getGeneration();
+        Boolean getIsRevoked();
+        LocalDateTime getRotatedAt();
+    }
 }
@@ -2,12 +2,25 @@ package com.matt.iam.repositories;
 
 import java.util.UUID;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.matt.iam.entities.Role;
+import com.matt.iam.infra.CacheConfig;
 import java.util.Optional;
 
 
 public interface RoleRepository extends JpaRepository<Role, UUID> {
+    @Cacheable(cacheNames = CacheConfig.ROLES, unless = "#result == null")
     Optional<Role> findByName(String name);
+
+    // a role change alters the authorities of every user holding it
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.ROLES, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.USER_AUTHORIZATIONS, allEntries = true)
+    })
+    <S extends Role> S save(S role);
 }
@@ -1,12 +1,91 @@
 package com.matt.iam.repositories;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.matt.iam.entities.User;
+import com.matt.iam.infra.CacheConfig;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
+
+    // no joins, unlike findByEmail which loads roles and permissions
+    @Query("select u.tokenVersion as tokenVersion, u.isEnabled as enabled from User u where u.email = :email")
+    Optional<TokenState> findTokenStateByEmail(@Param("email") String email);
+
+    interface TokenState {
+        int getTokenVersion();
+
+        boolean getEnabled();
+    }
+
+    @Override
+    @CacheEvict(cacheNames = { CacheConfig.USER_AUTHORIZATIONS, CacheConfig.USER_TOKEN_STATES }, key = "#p0.email")
+    <S extends User> S save(S user);
+
+    // only replaces the hash it was computed from, so a concurrent password change wins
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newPassword where u.id = :id and u.password = :currentPassword")
+    int updatePassword(
+        @Param("id") UUID id,
+        @Param("currentPassword") String currentPassword,
+        @Param("newPassword") String newPassword);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.failedLoginAttempts = 0 where u.id = :id")
+    int resetFailedLoginAttempts(@Param("id") UUID id);
+
+    /**
+     * Increments the failure counter in SQL and locks the account in the same statement
+     * once it reaches {@code maxAttempts}, so concurrent failures are all counted. A lock
+     * that is still running is kept, so only one of several concurrent failures reports
+     * that it locked the account.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+        update users
+        set failed_login_attempts = failed_login_attempts + 1,
+            account_locked_until = case
+                when failed_login_attempts + 1 >= :maxAttempts
+                    and (account_locked_until is null or account_locked_until <= :now) then :lockUntil
+                else account_locked_until
+            end
+        where id = :id
+        returning failed_login_attempts as "failedLoginAttempts",
+            coalesce(account_locked_until = :lockUntil, false) as "lockedByThisAttempt"
+        """)
+    FailedLoginAttempt incrementFailedLoginAttempts(
+        @Param("id") UUID id,
+        @Param("maxAttempts") int maxAttempts,
+        @Param("now") LocalDateTime now,
+        @Param("lockUntil") LocalDateTime lockUntil);
+
+    interface FailedLoginAttempt {
+        int getFailedLoginAttempts();
+
+        boolean getLockedByThisAttempt();
+    }
+
+    @Transactional
+    @Modifying
+    @CacheEvict(cacheNames = { CacheConfig.USER_AUTHORIZATIONS, CacheConfig.USER_TOKEN_STATES }, key = "#p0")
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.email = :email")
+    int incrementTokenVersion(@Param("email") String email);
+
+    // one statement for every user, used to invalidate all sessions during an incident
+    @Transactional
+    @Modifying
+    @CacheEvict(cacheNames = { CacheConfig.USER_AUTHORIZATIONS, CacheConfig.USER_TOKEN_STATES }, allEntries = true)
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1")
+    int incrementAllTokenVersions();
 }
@@ -11,6 +11,7 @@ import com.matt.iam.entities.Permission;
 import com.matt.iam.entities.Role;
 import com.matt.iam.repositories.PermissionRepository;
 import com.matt.iam.repositories.RoleRepository;
+import com.matt.iam.services.TokenIntrospectionService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -41,6 +42,20 @@ public class DummyRoleInitializer implements CommandLineRunner {
                 roleRepository.save(userRole);
             }
         );
+
+        // Role para gateways que usam /introspect, não é atribuída a nenhum usuário automaticamente
+        Permission introspect = permissionRepository.findByName(TokenIntrospectionService.AUTHORITY)
+            .orElseGet(() -> permissionRepository.save(new Permission(null, TokenIntrospectionService.AUTHORITY)));
+
+        roleRepository.findByName(TokenIntrospectionService.ROLE).ifPresentOrElse(
+            r -> {},
+            () -> {
+                Role introspectorRole = new Role();
+                introspectorRole.setName(TokenIntrospectionService.ROLE);
+                introspectorRole.setPermissions(Set.of(introspect));
+                roleRepository.save(introspectorRole);
+            }
+        );
     }
 
 }
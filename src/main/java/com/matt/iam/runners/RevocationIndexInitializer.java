@@ -0,0 +1,21 @@
+package com.matt.iam.runners;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import com.matt.iam.infra.RevocationIndex;
+
+import lombok.RequiredArgsConstructor;
+
+// runs once every singleton exists but before the web server starts accepting
+// requests, so no revoked token can authenticate against an empty index
+@Component
+@RequiredArgsConstructor
+public class RevocationIndexInitializer implements SmartInitializingSingleton {
+    private final RevocationIndex revocationIndex;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        this.revocationIndex.load();
+    }
+}
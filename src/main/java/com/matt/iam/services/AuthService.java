@@ -1,30 +1,40 @@
 package com.matt.iam.services;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.matt.iam.dtos.request.LoginRequest;
 import com.matt.iam.dtos.request.RefreshTokenRequest;
 import com.matt.iam.dtos.request.RegisterRequest;
 import com.matt.iam.dtos.response.LoginResponse;
-import com.matt.iam.entities.BlacklistedToken;
 import com.matt.iam.entities.RefreshToken;
 import com.matt.iam.entities.Role;
 import com.matt.iam.entities.User;
 import com.matt.iam.exception.CustomException;
 import com.matt.iam.exception.ExceptionMessages;
-import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.exception.TokenReuseException;
+import com.matt.iam.infra.AuthMetrics;
+import com.matt.iam.infra.LoginActivityBuffer;
+import com.matt.iam.infra.RevocationEvent;
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.infra.RevocationIndex;
 import com.matt.iam.repositories.RefreshTokenRepository;
 import com.matt.iam.repositories.RoleRepository;
 import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.repositories.UserRepository.FailedLoginAttempt;
+import com.matt.iam.utils.IssuedToken;
+import com.matt.iam.utils.JwtClaims;
 import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenHashUtil;
 
 import lombok.RequiredArgsConstructor;
 
@@ -34,16 +44,22 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final RefreshTokenRepository refreshTokenRepository;
-    private final BlacklistedTokenRepository blacklistedTokenRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final RevocationIndex revocationIndex;
+    private final RevocationEventBus revocationEventBus;
+    private final PasswordUpgradeService passwordUpgradeService;
+    private final LoginActivityBuffer loginActivityBuffer;
+    private final AuthMetrics authMetrics;
+    private final TransactionTemplate transactionTemplate;
 
     private static final int MAX_LOGIN_ATTEMPTS = 5;
     private static final int LOCK_TIME_MINUTES = 30;
     private static final int MAX_REFRESH_TOKENS = 5;
     private static final int MAX_REFRESH_ATTEMPTS = 3;
 
+    // no surrounding transaction, so no pooled connection is held while the password
+    // is hashed; the insert commits on its own
     public void createUser(RegisterRequest request) {
         if (this.userRepository.findByEmail(request.email()).isPresent()) {
             throw new CustomException(ExceptionMessages.USER_ALREADY_EXISTS, HttpStatus.BAD_REQUEST);
@@ -54,7 +70,7 @@ public class AuthService {
         user.setEmail(request.email());
         user.setPassword(passwordEncoder.encode(request.password()));
         user.setEnabled(true); // will be done by email request eventually
-        user.setCreatedAt(LocalDateTime.now());
+        user.setCreatedAt(now());
 
         Role userRole = this.roleRepository.findByName("USER")
                 .orElseThrow(() ->
@@ -65,6 +81,12 @@ public class AuthService {
         this.userRepository.save(user);
     }
 
+    /**
+     * Runs without a surrounding transaction so the password check, which dominates the
+     * request, does not hold a pooled connection. A failed attempt commits on its own so
+     * it stays recorded when the login is rejected, the writes of a successful login
+     * commit together once hashing is done.
+     */
     public LoginResponse login(LoginRequest request) {
         User user = this.userRepository.findByEmail(request.email())
                 .orElseThrow(() -> new CustomException(ExceptionMessages.USER_NOT_FOUND, HttpStatus.NOT_FOUND));
@@ -73,122 +95,144 @@ public class AuthService {
             throw new CustomException(ExceptionMessages.ACCOUNT_NOT_ENABLED, HttpStatus.FORBIDDEN);
         }
 
-        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(LocalDateTime.now())) {
+        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(now())) {
             throw new CustomException(ExceptionMessages.ACCOUNT_LOCKED, HttpStatus.FORBIDDEN);
         }
 
-        var usernamePassword = new UsernamePasswordAuthenticationToken(request.email(), request.password());
+        // the user is already loaded, so check the password here; an AuthenticationManager
+        // would fetch the same user again
+        if (!this.passwordEncoder.matches(request.password(), user.getPassword())) {
+            LocalDateTime now = now();
+            FailedLoginAttempt attempt = this.userRepository.incrementFailedLoginAttempts(
+                    user.getId(), MAX_LOGIN_ATTEMPTS, now, now.plusMinutes(LOCK_TIME_MINUTES));
 
-        try {
-            var auth = this.authenticationManager.authenticate(usernamePassword);
+            if (attempt.getLockedByThisAttempt()) {
+                this.authMetrics.accountLocked();
+            }
 
-            user.setFailedLoginAttempts(0);
-            user.setLastLoginAt(LocalDateTime.now());
-            this.userRepository.save(user);
+            if (attempt.getFailedLoginAttempts() >= MAX_LOGIN_ATTEMPTS) {
+                throw new CustomException(ExceptionMessages.TOO_MANY_ATTEMPTS, HttpStatus.FORBIDDEN);
+            }
 
-            String accessToken = this.jwtUtil.generateAccessToken(user);
-            String refreshToken = this.jwtUtil.generateRefreshToken(user);
+            throw new CustomException(ExceptionMessages.INVALID_CREDENTIALS, HttpStatus.FORBIDDEN);
+        }
 
-            RefreshToken refreshTokenToSave = new RefreshToken();
-            refreshTokenToSave.setToken(refreshToken);
-            refreshTokenToSave.setUser(user);
-            refreshTokenToSave.setExpiresAt(jwtUtil.getExpirationDateFromToken(refreshToken));
+        this.passwordUpgradeService.upgradeIfNeeded(user, request.password());
 
-            this.refreshTokenRepository.save(refreshTokenToSave);
+        this.loginActivityBuffer.recordLogin(user.getId(), now());
 
-            return new LoginResponse(user.getId(), accessToken, refreshToken);
-        } catch (BadCredentialsException e) {
-            user.setFailedLoginAttempts(user.getFailedLoginAttempts() + 1);
+        UUID familyId = UUID.randomUUID();
+        long signingStart = System.nanoTime();
+        IssuedToken accessToken = this.jwtUtil.generateAccessToken(user, familyId, 0);
+        IssuedToken refreshToken = this.jwtUtil.generateRefreshToken(user, familyId, 0);
+        this.authMetrics.recordSigning(System.nanoTime() - signingStart);
 
-            if (user.getFailedLoginAttempts() >= MAX_LOGIN_ATTEMPTS) {
-                user.setAccountLockedUntil(LocalDateTime.now().plusMinutes(LOCK_TIME_MINUTES));
-                this.userRepository.save(user);
-                throw new CustomException(ExceptionMessages.TOO_MANY_ATTEMPTS, HttpStatus.FORBIDDEN);
+        RefreshToken refreshTokenToSave = new RefreshToken();
+        refreshTokenToSave.setFamilyId(familyId);
+        refreshTokenToSave.setTokenHash(TokenHashUtil.hash(refreshToken.token()));
+        refreshTokenToSave.setUser(user);
+        refreshTokenToSave.setExpiresAt(refreshToken.expiresAt());
+
+        this.transactionTemplate.executeWithoutResult(status -> {
+            if (user.getFailedLoginAttempts() > 0) {
+                this.userRepository.resetFailedLoginAttempts(user.getId());
             }
 
-            this.userRepository.save(user);
-            throw new CustomException(ExceptionMessages.INVALID_CREDENTIALS, e, HttpStatus.FORBIDDEN);
-        }
+            // refreshing no longer creates rows, so the session limit is enforced here,
+            // leaving room for the session created below
+            this.refreshTokenRepository.revokeAllButNewest(user.getId(), MAX_REFRESH_TOKENS - 1);
+            this.refreshTokenRepository.save(refreshTokenToSave);
+        });
+
+        return new LoginResponse(user.getId(), accessToken.token(), refreshToken.token());
     }
 
+    /**
+     * Rotates the session in place: the stored hash moves to the new refresh token and
+     * the generation goes up by one. Presenting a superseded refresh token means it was
+     * copied, so the whole session is revoked. Access tokens of older generations are
+     * rejected through the revocation index, without a blacklist row per refresh.
+     */
+    @Transactional(noRollbackFor = TokenReuseException.class)
     public LoginResponse refreshToken(RefreshTokenRequest request) {
-        String oldAccessToken = request.accessToken();
-        String email = this.jwtUtil.validateToken(request.refreshToken());
+        JwtClaims refreshClaims = this.jwtUtil.decodeToken(request.refreshToken());
 
-        if (email == null) {
+        if (refreshClaims == null || refreshClaims.familyId() == null || refreshClaims.generation() == null) {
             throw new CustomException(ExceptionMessages.INVALID_TOKEN, HttpStatus.FORBIDDEN);
         }
 
-        if (oldAccessToken == null || oldAccessToken.isEmpty()) {
+        // access tokens carry the same family, without this check anyone holding one
+        // could end the session through the reuse detection below
+        if (!JwtUtil.REFRESH_TOKEN_TYPE.equals(refreshClaims.type())) {
             throw new CustomException(ExceptionMessages.INVALID_TOKEN, HttpStatus.FORBIDDEN);
         }
 
-        RefreshToken refreshToken = this.refreshTokenRepository.findByTokenAndIsRevokedFalse(request.refreshToken())
+        RefreshToken session = this.refreshTokenRepository.findByFamilyId(refreshClaims.familyId())
                 .orElseThrow(() -> new CustomException(ExceptionMessages.TOKEN_WAS_REVOKED, HttpStatus.FORBIDDEN));
 
-        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) {
-            refreshToken.setIsRevoked(true);
+        if (session.getIsRevoked()) {
+            throw new CustomException(ExceptionMessages.TOKEN_WAS_REVOKED, HttpStatus.FORBIDDEN);
+        }
+
+        if (refreshClaims.generation() != session.getGeneration()
+                || !Arrays.equals(session.getTokenHash(), TokenHashUtil.hash(request.refreshToken()))) {
+            throw revokeFamily(session.getFamilyId());
+        }
+
+        if (session.getExpiresAt().isBefore(now())) {
             throw new CustomException(ExceptionMessages.TOKEN_EXPIRED, HttpStatus.FORBIDDEN);
         }
 
-        User user = this.userRepository.findByEmail(email)
-                .orElseThrow(() -> new CustomException(ExceptionMessages.USER_NOT_FOUND, HttpStatus.NOT_FOUND));
+        User user = session.getUser();
 
-        if (!user.isEnabled()) {
-            throw new CustomException(ExceptionMessages.ACCOUNT_LOCKED, HttpStatus.FORBIDDEN);
+        if (!user.getEmail().equals(refreshClaims.subject())) {
+            throw new CustomException(ExceptionMessages.TOKEN_NOT_BELONG_TO_USER, HttpStatus.FORBIDDEN);
         }
 
-        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(LocalDateTime.now())) {
+        if (!Integer.valueOf(user.getTokenVersion()).equals(refreshClaims.tokenVersion())) {
+            throw new CustomException(ExceptionMessages.TOKEN_WAS_REVOKED, HttpStatus.FORBIDDEN);
+        }
+
+        if (!user.isEnabled()) {
             throw new CustomException(ExceptionMessages.ACCOUNT_LOCKED, HttpStatus.FORBIDDEN);
         }
 
-        if (!this.blacklistedTokenRepository.existsByToken(oldAccessToken)) {
-            BlacklistedToken accessTokenToRevoke = new BlacklistedToken();
-            accessTokenToRevoke.setToken(oldAccessToken);
-            accessTokenToRevoke.setExpiresAt(jwtUtil.getExpirationDateFromToken(oldAccessToken));
-            accessTokenToRevoke.setRevokedAt(LocalDateTime.now());
-            accessTokenToRevoke.setUser(user);
-            this.blacklistedTokenRepository.save(accessTokenToRevoke);
+        if (user.getAccountLockedUntil() != null && user.getAccountLockedUntil().isAfter(now())) {
+            throw new CustomException(ExceptionMessages.ACCOUNT_LOCKED, HttpStatus.FORBIDDEN);
         }
 
-        refreshToken.setIsRevoked(true);
-        refreshToken.setLastUsedAt(LocalDateTime.now());
-        this.refreshTokenRepository.save(refreshToken);
+        int nextGeneration = session.getGeneration() + 1;
+        long signingStart = System.nanoTime();
+        IssuedToken newAccessToken = this.jwtUtil.generateAccessToken(user, session.getFamilyId(), nextGeneration);
+        IssuedToken newRefreshToken = this.jwtUtil.generateRefreshToken(user, session.getFamilyId(), nextGeneration);
+        this.authMetrics.recordSigning(System.nanoTime() - signingStart);
 
-        long activeRefreshTokens = this.refreshTokenRepository.countByUserAndIsRevokedFalse(user);
+        int rotated = this.refreshTokenRepository.rotate(session.getFamilyId(), session.getGeneration(),
+                TokenHashUtil.hash(newRefreshToken.token()), newRefreshToken.expiresAt(), now());
 
-        if (activeRefreshTokens >= MAX_REFRESH_TOKENS) {
-            this.refreshTokenRepository.findTopByUserAndIsRevokedFalseOrderByCreatedAtAsc(user)
-                    .ifPresent(oldRefreshToken -> {
-                        oldRefreshToken.setIsRevoked(true);
-                        this.refreshTokenRepository.save(oldRefreshToken);
-                    });
+        // a concurrent request rotated the same token first, which is reuse as well
+        if (rotated == 0) {
+            throw revokeFamily(session.getFamilyId());
         }
 
-        String newAccessToken = this.jwtUtil.generateAccessToken(user);
-        String newRefreshToken = this.jwtUtil.generateRefreshToken(user);
-
-        RefreshToken refreshTokenToSave = new RefreshToken();
-        refreshTokenToSave.setToken(newRefreshToken);
-        refreshTokenToSave.setUser(user);
-        refreshTokenToSave.setExpiresAt(jwtUtil.getExpirationDateFromToken(newRefreshToken));
-
-        this.refreshTokenRepository.save(refreshTokenToSave);
+        this.revocationIndex.supersede(session.getFamilyId(), nextGeneration);
 
-        return new LoginResponse(user.getId(), newAccessToken, newRefreshToken);
+        return new LoginResponse(user.getId(), newAccessToken.token(), newRefreshToken.token());
     }
 
+    // revoking an expired token is kept even though the request fails
+    @Transactional(noRollbackFor = CustomException.class)
     public void logout(RefreshTokenRequest request) {
-        String email = this.jwtUtil.validateToken(request.refreshToken());
+        JwtClaims refreshClaims = this.jwtUtil.decodeToken(request.refreshToken());
 
-        if (email == null) {
+        if (refreshClaims == null) {
             throw new CustomException(ExceptionMessages.INVALID_TOKEN, HttpStatus.FORBIDDEN);
         }
 
-        User user = this.userRepository.findByEmail(email)
+        User user = this.userRepository.findByEmail(refreshClaims.subject())
                 .orElseThrow(() -> new CustomException(ExceptionMessages.USER_NOT_FOUND, HttpStatus.NOT_FOUND));
 
-        RefreshToken token = this.refreshTokenRepository.findByToken(request.refreshToken())
+        RefreshToken token = this.refreshTokenRepository.findByTokenHash(TokenHashUtil.hash(request.refreshToken()))
                 .orElseThrow(() -> new CustomException(ExceptionMessages.INVALID_TOKEN, HttpStatus.FORBIDDEN));
 
         if (!token.getUser().getId().equals(user.getId())) {
@@ -199,38 +243,53 @@ public class AuthService {
             throw new CustomException(ExceptionMessages.TOKEN_WAS_REVOKED, HttpStatus.FORBIDDEN);
         }
 
-        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
-            token.setIsRevoked(true);
-            this.refreshTokenRepository.save(token);
+        if (token.getExpiresAt().isBefore(now())) {
+            this.refreshTokenRepository.revokeById(token.getId(), token.getLastUsedAt());
             throw new CustomException(ExceptionMessages.TOKEN_EXPIRED, HttpStatus.FORBIDDEN);
         }
 
-        token.setIsRevoked(true);
-        token.setLastUsedAt(LocalDateTime.now());
-        this.refreshTokenRepository.save(token);
+        // raising the family floor rejects every access token of the session and the refresh
+        // token as a bearer token, so the access token needs no blacklist entry of its own;
+        // rotated_at lets the index rebuild that floor after a restart
+        this.refreshTokenRepository.revokeFamily(token.getFamilyId(), now());
+        this.revocationIndex.revokeFamily(token.getFamilyId());
+        this.cleanupOldTokens(user);
+    }
 
-        BlacklistedToken blacklistedToken = new BlacklistedToken();
-        blacklistedToken.setToken(request.accessToken());
-        blacklistedToken.setExpiresAt(jwtUtil.getExpirationDateFromToken(request.accessToken()));
-        blacklistedToken.setUser(user);
-        this.blacklistedTokenRepository.save(blacklistedToken);
+    /**
+     * Revokes every token of the user with a single update of its token version, instead
+     * of blacklisting each outstanding token.
+     */
+    @Transactional
+    public void revokeAllSessions(String email) {
+        if (this.userRepository.incrementTokenVersion(email) == 0) {
+            throw new CustomException(ExceptionMessages.USER_NOT_FOUND, HttpStatus.NOT_FOUND);
+        }
 
-        this.cleanupOldTokens(user);
+        this.revocationEventBus.publish(new RevocationEvent.UserSessionsRevoked(email));
+    }
+
+    // incident response: every issued token becomes invalid with one statement, see SessionsEndpoint
+    @Transactional
+    public int revokeAllSessionsForAllUsers() {
+        int updated = this.userRepository.incrementAllTokenVersions();
+        this.revocationEventBus.publish(new RevocationEvent.UserSessionsRevoked(null));
+        return updated;
+    }
+
+    // token expirations are stored as UTC wall-clock times, see JwtUtil
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private TokenReuseException revokeFamily(UUID familyId) {
+        this.refreshTokenRepository.revokeFamily(familyId, now());
+        this.revocationIndex.revokeFamily(familyId);
+        return new TokenReuseException();
     }
 
     private void cleanupOldTokens(User user) {
-        this.refreshTokenRepository.findByUserAndExpiresAtBeforeAndIsRevokedFalse(user, LocalDateTime.now())
-                .forEach(token -> {
-                    token.setIsRevoked(true);
-                    this.refreshTokenRepository.save(token);
-                });
-
-        this.refreshTokenRepository.findByUserAndIsRevokedFalseOrderByCreatedAtDesc(user)
-                .stream()
-                .skip(5)
-                .forEach(token -> {
-                    token.setIsRevoked(true);
-                    this.refreshTokenRepository.save(token);
-                });
+        this.refreshTokenRepository.revokeExpiredByUserId(user.getId(), now());
+        this.refreshTokenRepository.revokeAllButNewest(user.getId(), MAX_REFRESH_TOKENS);
     }
 }
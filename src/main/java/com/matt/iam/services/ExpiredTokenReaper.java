@@ -0,0 +1,79 @@
+package com.matt.iam.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.RefreshTokenRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Deletes token rows whose {@code expires_at} has passed. Rows are removed in small
+ * batches, each in its own transaction, so a large backlog never holds long locks or
+ * produces one huge WAL burst.
+ */
+@Service
+public class ExpiredTokenReaper {
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public ExpiredTokenReaper(
+            BlacklistedTokenRepository blacklistedTokenRepository,
+            RefreshTokenRepository refreshTokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${token.purge.batch-size:1000}") int batchSize,
+            @Value("${token.purge.max-batches-per-run:50}") int maxBatchesPerRun
+    ) {
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(
+        initialDelayString = "${token.purge.interval-ms:300000}",
+        fixedDelayString = "${token.purge.interval-ms:300000}")
+    public void purgeExpiredTokens() {
+        // expires_at holds UTC wall-clock times
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+
+        purge("blacklisted_tokens", now, this.blacklistedTokenRepository::deleteExpiredBatch);
+        purge("refresh_tokens", now, this.refreshTokenRepository::deleteExpiredBatch);
+    }
+
+    private void purge(String table, LocalDateTime now, BiFunction<LocalDateTime, Integer, Integer> deleteBatch) {
+        Counter purged = Counter.builder("iam.token.purge.rows")
+            .tag("table", table)
+            .register(this.meterRegistry);
+        Timer.Sample sample = Timer.start(this.meterRegistry);
+        long total = 0;
+
+        try {
+            for (int batch = 0; batch < this.maxBatchesPerRun; batch++) {
+                int deleted = deleteBatch.apply(now, this.batchSize);
+                total += deleted;
+
+                if (deleted < this.batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            purged.increment(total);
+            sample.stop(Timer.builder("iam.token.purge")
+                .tag("table", table)
+                .register(this.meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.matt.iam.services;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.infra.PasswordHashingExecutor;
+import com.matt.iam.repositories.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Rehashes passwords stored with outdated encoder settings right after a successful
+ * login, while the raw password is still at hand. The work runs on the hashing pool
+ * so the login response does not wait for it.
+ */
+@Service
+@RequiredArgsConstructor
+public class PasswordUpgradeService {
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final UserRepository userRepository;
+
+    public void upgradeIfNeeded(User user, String rawPassword) {
+        String currentHash = user.getPassword();
+
+        if (!this.passwordEncoder.upgradeEncoding(currentHash)) {
+            return;
+        }
+
+        this.passwordHashingExecutor.submit("upgrade", () -> {
+            String upgradedHash = this.passwordEncoder.encode(rawPassword);
+            this.userRepository.updatePassword(user.getId(), currentHash, upgradedHash);
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.matt.iam.services;
+
+import org.springframework.stereotype.Service;
+
+import com.matt.iam.infra.RevocationEvent;
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.utils.JwtUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rotates and retires HMAC signing keys at runtime. Only key ids are published on the
+ * {@link RevocationEventBus}, the secrets never leave a node: a key has to be provisioned
+ * in {@code jwt.secret.previous-keys} on every node before it is made current. Changes
+ * only live in memory, {@code jwt.secret.*} has to be updated before the next restart.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SigningKeyService {
+    private final JwtUtil jwtUtil;
+    private final RevocationEventBus revocationEventBus;
+
+    // key changes made on other nodes, applying one twice is harmless
+    @PostConstruct
+    public void subscribe() {
+        this.revocationEventBus.subscribe(event -> {
+            switch (event) {
+                case RevocationEvent.SigningKeyRotated e when !e.keyId().equals(this.jwtUtil.getCurrentKeyId()) ->
+                    promoteRemote(e.keyId());
+                case RevocationEvent.SigningKeyRetired e when this.jwtUtil.hasKey(e.keyId())
+                        && !e.keyId().equals(this.jwtUtil.getCurrentKeyId()) ->
+                    this.jwtUtil.retireKey(e.keyId());
+                default -> { }
+            }
+        });
+    }
+
+    /**
+     * Makes a provisioned key current on every node. Throws
+     * {@link IllegalArgumentException} for a key this node has no secret for and
+     * {@link IllegalStateException} for a key of another algorithm than the current one.
+     */
+    public void rotate(String keyId) {
+        this.jwtUtil.promoteKey(keyId);
+        this.revocationEventBus.publish(new RevocationEvent.SigningKeyRotated(keyId));
+    }
+
+    /**
+     * Tokens signed with the key stop verifying on every node. Throws
+     * {@link IllegalArgumentException} for the current signing key.
+     */
+    public void retire(String keyId) {
+        this.jwtUtil.retireKey(keyId);
+        this.revocationEventBus.publish(new RevocationEvent.SigningKeyRetired(keyId));
+    }
+
+    // this node keeps signing with its current key, tokens from the other nodes fail here
+    // until the key is provisioned, which is what the operator has to be told about
+    private void promoteRemote(String keyId) {
+        try {
+            this.jwtUtil.promoteKey(keyId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.error("Signing key {} was made current on another node but cannot be used here", keyId, e);
+        }
+    }
+
+    public String currentKeyId() {
+        return this.jwtUtil.getCurrentKeyId();
+    }
+
+    public boolean hasKey(String keyId) {
+        return this.jwtUtil.hasKey(keyId);
+    }
+}
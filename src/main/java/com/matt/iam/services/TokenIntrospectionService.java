@@ -0,0 +1,76 @@
+package com.matt.iam.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.stereotype.Service;
+
+import com.matt.iam.dtos.response.IntrospectionResponse;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Answers whether a token is currently valid with the same checks as
+ * {@code JwtCustomFilter}: signature and expiry, token type, revocation, and the
+ * user's token version. All of them are served from memory on the common path.
+ * Refresh tokens are always reported inactive, they are not access credentials.
+ * <p>
+ * Callers need the {@value #AUTHORITY} authority, seeded with the
+ * {@value #ROLE} role by {@code DummyRoleInitializer} and granted to a client account
+ * with {@code insert into user_roles (user_id, role_id) select u.id, r.id from users u,
+ * roles r where u.email = '<client email>' and r.name = 'INTROSPECTOR'}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenIntrospectionService {
+    public static final String AUTHORITY = "INTROSPECT";
+    public static final String ROLE = "INTROSPECTOR";
+
+    private final JwtUtil jwtUtil;
+    private final RevocationIndex revocationIndex;
+    private final UserAuthorizationService userAuthorizationService;
+
+    public IntrospectionResponse introspect(String token) {
+        JwtClaims claims = this.jwtUtil.decodeToken(token);
+
+        if (claims == null || !claims.isAccessToken() || this.revocationIndex.isRevoked(token, claims)) {
+            return IntrospectionResponse.inactive();
+        }
+
+        Optional<UserAuthorization> user = this.userAuthorizationService.findByEmail(claims.subject());
+
+        if (user.isEmpty() || !user.get().enabled()
+                || !Integer.valueOf(user.get().tokenVersion()).equals(claims.tokenVersion())) {
+            return IntrospectionResponse.inactive();
+        }
+
+        return new IntrospectionResponse(
+            true,
+            claims.subject(),
+            user.get().roles(),
+            user.get().permissions(),
+            epochSeconds(claims.expiresAt()),
+            epochSeconds(claims.issuedAt()),
+            claims.jti(),
+            JwtUtil.ISSUER);
+    }
+
+    // gateways often send the same token several times in one batch, each is checked once
+    public List<IntrospectionResponse> introspectAll(List<String> tokens) {
+        Map<String, IntrospectionResponse> results = new HashMap<>();
+        return tokens.stream()
+            .map(token -> results.computeIfAbsent(token, this::introspect))
+            .toList();
+    }
+
+    private static Long epochSeconds(LocalDateTime time) {
+        return time == null ? null : time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
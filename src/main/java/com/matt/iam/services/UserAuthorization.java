@@ -0,0 +1,21 @@
+package com.matt.iam.services;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable view of what the filter needs from a user, safe to share between requests
+ * unlike the managed entity.
+ */
+public record UserAuthorization(
+    UUID id,
+    String email,
+    boolean enabled,
+    int tokenVersion,
+    List<String> roles,
+    List<String> permissions
+) {
+    public UserTokenState tokenState() {
+        return new UserTokenState(this.tokenVersion, this.enabled);
+    }
+}
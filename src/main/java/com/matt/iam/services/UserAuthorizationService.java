@@ -0,0 +1,73 @@
+package com.matt.iam.services;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.infra.CacheConfig;
+import com.matt.iam.infra.RevocationEvent;
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.utils.JwtUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class UserAuthorizationService {
+    private final UserRepository userRepository;
+    private final RevocationEventBus revocationEventBus;
+    private final CacheManager cacheManager;
+
+    // token version bumps made on other nodes
+    @PostConstruct
+    public void subscribe() {
+        this.revocationEventBus.subscribe(event -> {
+            for (String cacheName : List.of(CacheConfig.USER_AUTHORIZATIONS, CacheConfig.USER_TOKEN_STATES)) {
+                Cache cache = this.cacheManager.getCache(cacheName);
+
+                switch (event) {
+                    case RevocationEvent.UserSessionsRevoked e when e.email() != null -> cache.evict(e.email());
+                    case RevocationEvent.UserSessionsRevoked e -> cache.clear();
+                    case RevocationEvent.Resync e -> cache.clear();
+                    default -> { }
+                }
+            }
+        });
+    }
+
+    /**
+     * Cached by email. Writes through {@link UserRepository} that change any of these
+     * fields evict the entry.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_AUTHORIZATIONS, unless = "#result == null")
+    public Optional<UserAuthorization> findByEmail(String email) {
+        return this.userRepository.findByEmail(email).map(UserAuthorizationService::snapshot);
+    }
+
+    /**
+     * Only what can revoke a token, for the filter's stateless mode. Cached and evicted
+     * like {@link #findByEmail(String)}.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_TOKEN_STATES, unless = "#result == null")
+    public Optional<UserTokenState> findTokenStateByEmail(String email) {
+        return this.userRepository.findTokenStateByEmail(email)
+            .map(state -> new UserTokenState(state.getTokenVersion(), state.getEnabled()));
+    }
+
+    private static UserAuthorization snapshot(User user) {
+        return new UserAuthorization(
+            user.getId(),
+            user.getEmail(),
+            user.isEnabled(),
+            user.getTokenVersion(),
+            List.copyOf(JwtUtil.collectRoles(user)),
+            List.copyOf(JwtUtil.collectPermissions(user)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.matt.iam.services;
+
+/**
+ * The part of {@link UserAuthorization} that can revoke a token. Enough for the filter
+ * when it takes roles and permissions from the token claims.
+ */
+public record UserTokenState(
+    int tokenVersion,
+    boolean enabled
+) {
+}
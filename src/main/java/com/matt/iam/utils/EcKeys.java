@@ -0,0 +1,53 @@
+package com.matt.iam.utils;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Reads P-256 keys given either as PEM or as bare base64 DER (PKCS#8 for private keys,
+ * X.509 SubjectPublicKeyInfo for public keys).
+ */
+public final class EcKeys {
+    private EcKeys() {}
+
+    public static KeyPair load(String privateKey, String publicKey) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            ECPrivateKey priv = (ECPrivateKey) factory.generatePrivate(new PKCS8EncodedKeySpec(der(privateKey)));
+            return new KeyPair(parsePublicKey(publicKey), priv);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid EC signing key", e);
+        }
+    }
+
+    public static ECPublicKey parsePublicKey(String publicKey) {
+        try {
+            return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(der(publicKey)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid EC public key", e);
+        }
+    }
+
+    public static KeyPair generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("P-256 is not available", e);
+        }
+    }
+
+    private static byte[] der(String key) {
+        String body = key.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(body);
+    }
+}
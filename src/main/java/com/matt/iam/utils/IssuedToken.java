@@ -0,0 +1,14 @@
+package com.matt.iam.utils;
+
+import java.time.LocalDateTime;
+
+/**
+ * A freshly signed token together with the values that were written into it, so
+ * callers never have to parse their own token back.
+ */
+public record IssuedToken(
+    String token,
+    String jti,
+    LocalDateTime expiresAt
+) {
+}
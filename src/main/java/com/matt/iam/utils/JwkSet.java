@@ -0,0 +1,51 @@
+package com.matt.iam.utils;
+
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialized JSON Web Key Set (RFC 7517) of the public verification keys, built once
+ * per key ring. The ETag is derived from the body, so it only changes with the keys.
+ */
+public record JwkSet(String json, String etag) {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static JwkSet of(Map<String, ECPublicKey> publicKeys) {
+        List<Map<String, String>> keys = new ArrayList<>();
+
+        publicKeys.forEach((keyId, key) -> {
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", keyId);
+            jwk.put("use", "sig");
+            jwk.put("alg", "ES256");
+            jwk.put("x", coordinate(key.getW().getAffineX()));
+            jwk.put("y", coordinate(key.getW().getAffineY()));
+            keys.add(jwk);
+        });
+
+        try {
+            String json = MAPPER.writeValueAsString(Map.of("keys", keys));
+            return new JwkSet(json, "\"" + TokenHashUtil.fingerprint(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize JWK set", e);
+        }
+    }
+
+    // JWK coordinates are unsigned big-endian, padded to the 32 byte field size
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        return TokenHashUtil.encode(padded);
+    }
+}
@@ -0,0 +1,29 @@
+package com.matt.iam.utils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Claims of a token that already passed signature and issuer verification. Times are
+ * UTC wall-clock values, matching the {@code expires_at} columns. {@code type} is
+ * {@value JwtUtil#ACCESS_TOKEN_TYPE} or {@value JwtUtil#REFRESH_TOKEN_TYPE}, and
+ * {@code null} for tokens issued before the claim existed.
+ */
+public record JwtClaims(
+    String subject,
+    String jti,
+    LocalDateTime issuedAt,
+    LocalDateTime expiresAt,
+    List<String> roles,
+    List<String> permissions,
+    UUID familyId,
+    Integer generation,
+    Integer tokenVersion,
+    String type
+) {
+    // only access tokens authenticate requests, a refresh token is only good for /refresh
+    public boolean isAccessToken() {
+        return JwtUtil.ACCESS_TOKEN_TYPE.equals(this.type);
+    }
+}
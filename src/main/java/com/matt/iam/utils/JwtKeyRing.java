@@ -0,0 +1,162 @@
+package com.matt.iam.utils;
+
+import java.security.interfaces.ECPublicKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+
+/**
+ * Immutable set of signing keys identified by {@code kid}. The current key signs new
+ * tokens, every key in the ring (current and previous) can verify. Algorithm and
+ * verifier instances are thread-safe and built once per key. Public halves of
+ * asymmetric keys are kept so they can be published for offline verification.
+ * <p>
+ * Previous HMAC keys hold their secret and can be promoted to the current signer,
+ * previous asymmetric keys only hold a public key and can verify only.
+ */
+public final class JwtKeyRing {
+    private final String currentKeyId;
+    private final Algorithm signer;
+    private final Map<String, JWTVerifier> verifiers;
+    private final Map<String, Algorithm> signers;
+    private final Map<String, ECPublicKey> publicKeys;
+
+    private JwtKeyRing(String currentKeyId, Algorithm signer, Map<String, JWTVerifier> verifiers,
+            Map<String, Algorithm> signers, Map<String, ECPublicKey> publicKeys) {
+        this.currentKeyId = currentKeyId;
+        this.signer = signer;
+        this.verifiers = Collections.unmodifiableMap(verifiers);
+        this.signers = Collections.unmodifiableMap(signers);
+        this.publicKeys = Collections.unmodifiableMap(publicKeys);
+    }
+
+    public static JwtKeyRing of(String keyId, Algorithm algorithm, String issuer) {
+        Map<String, JWTVerifier> verifiers = new LinkedHashMap<>();
+        verifiers.put(keyId, buildVerifier(algorithm, issuer));
+
+        Map<String, Algorithm> signers = new LinkedHashMap<>();
+        signers.put(keyId, algorithm);
+
+        return new JwtKeyRing(keyId, algorithm, verifiers, signers, new LinkedHashMap<>());
+    }
+
+    /**
+     * Returns a ring where {@code algorithm} becomes the current key and the keys of
+     * this ring are kept for verification only.
+     */
+    public JwtKeyRing rotate(String keyId, Algorithm algorithm, ECPublicKey publicKey, String issuer) {
+        Map<String, JWTVerifier> verifiers = new LinkedHashMap<>();
+        verifiers.put(keyId, buildVerifier(algorithm, issuer));
+        this.verifiers.forEach(verifiers::putIfAbsent);
+
+        Map<String, Algorithm> signers = new LinkedHashMap<>();
+        signers.put(keyId, algorithm);
+        this.signers.forEach(signers::putIfAbsent);
+
+        Map<String, ECPublicKey> publicKeys = new LinkedHashMap<>();
+        if (publicKey != null) {
+            publicKeys.put(keyId, publicKey);
+        }
+        this.publicKeys.forEach(publicKeys::putIfAbsent);
+
+        return new JwtKeyRing(keyId, algorithm, verifiers, signers, publicKeys);
+    }
+
+    public JwtKeyRing withPreviousKey(String keyId, Algorithm algorithm, String issuer) {
+        return withPreviousKey(keyId, algorithm, null, issuer);
+    }
+
+    /**
+     * Adds a key without changing the current signer. A key passed without a public key
+     * is an HMAC key and can later be {@link #promote(String) promoted}.
+     */
+    public JwtKeyRing withPreviousKey(String keyId, Algorithm algorithm, ECPublicKey publicKey, String issuer) {
+        Map<String, JWTVerifier> verifiers = new LinkedHashMap<>(this.verifiers);
+        verifiers.putIfAbsent(keyId, buildVerifier(algorithm, issuer));
+
+        Map<String, Algorithm> signers = new LinkedHashMap<>(this.signers);
+        Map<String, ECPublicKey> publicKeys = new LinkedHashMap<>(this.publicKeys);
+        if (publicKey != null) {
+            publicKeys.putIfAbsent(keyId, publicKey);
+        } else {
+            signers.putIfAbsent(keyId, algorithm);
+        }
+
+        return new JwtKeyRing(this.currentKeyId, this.signer, verifiers, signers, publicKeys);
+    }
+
+    /**
+     * Returns a ring where the key {@code keyId}, already in this ring, becomes the
+     * current signer. Throws {@link IllegalArgumentException} when the ring holds no
+     * signing material for it and {@link IllegalStateException} when it uses another
+     * algorithm than the current signer, since verifiers that only trust the published
+     * keys would reject everything it signs.
+     */
+    public JwtKeyRing promote(String keyId) {
+        Algorithm algorithm = this.signers.get(keyId);
+
+        if (algorithm == null) {
+            throw new IllegalArgumentException("No signing key " + keyId);
+        }
+
+        if (!algorithm.getName().equals(this.signer.getName())) {
+            throw new IllegalStateException("Signing key " + keyId + " uses " + algorithm.getName()
+                + " while the current signer uses " + this.signer.getName());
+        }
+
+        return new JwtKeyRing(keyId, algorithm, new LinkedHashMap<>(this.verifiers),
+            new LinkedHashMap<>(this.signers), new LinkedHashMap<>(this.publicKeys));
+    }
+
+    public JwtKeyRing retire(String keyId) {
+        if (this.currentKeyId.equals(keyId)) {
+            throw new IllegalArgumentException("The current signing key cannot be retired");
+        }
+
+        Map<String, JWTVerifier> verifiers = new LinkedHashMap<>(this.verifiers);
+        verifiers.remove(keyId);
+
+        Map<String, Algorithm> signers = new LinkedHashMap<>(this.signers);
+        signers.remove(keyId);
+
+        Map<String, ECPublicKey> publicKeys = new LinkedHashMap<>(this.publicKeys);
+        publicKeys.remove(keyId);
+
+        return new JwtKeyRing(this.currentKeyId, this.signer, verifiers, signers, publicKeys);
+    }
+
+    public String currentKeyId() {
+        return this.currentKeyId;
+    }
+
+    public Algorithm signer() {
+        return this.signer;
+    }
+
+    /**
+     * Tokens issued before key ids were introduced carry no {@code kid} and are checked
+     * against the current key.
+     */
+    public JWTVerifier verifierFor(String keyId) {
+        return this.verifiers.get(keyId == null ? this.currentKeyId : keyId);
+    }
+
+    public boolean contains(String keyId) {
+        return this.verifiers.containsKey(keyId);
+    }
+
+    // only asymmetric keys, HMAC secrets are never published
+    public Map<String, ECPublicKey> publicKeys() {
+        return this.publicKeys;
+    }
+
+    private static JWTVerifier buildVerifier(Algorithm algorithm, String issuer) {
+        return JWT.require(algorithm)
+            .withIssuer(issuer)
+            .build();
+    }
+}
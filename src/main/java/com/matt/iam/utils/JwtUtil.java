@@ -1,8 +1,12 @@
 package com.matt.iam.utils;
 
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -12,99 +16,230 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.AlgorithmMismatchException;
+import com.auth0.jwt.exceptions.InvalidClaimException;
 import com.auth0.jwt.exceptions.JWTCreationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.matt.iam.entities.Permission;
 import com.matt.iam.entities.Role;
 import com.matt.iam.entities.User;
 import com.matt.iam.exception.CustomException;
 import com.matt.iam.exception.ExceptionMessages;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
 public class JwtUtil {
-    @Value("${jwt.secret.key}")
-    private String secret;
-
-    public String generateAccessToken(User user) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
+    public static final String ISSUER = "iam-api";
+    public static final long ACCESS_TOKEN_TTL_SECONDS = 900; // 15 min
+    public static final String ACCESS_TOKEN_TYPE = "access";
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+    private static final long REFRESH_TOKEN_TTL_SECONDS = 604800; // 7 days
+
+    private volatile JwtKeyRing keyRing;
+    private volatile JwkSet jwkSet;
+
+    /**
+     * With {@code jwt.signing.algorithm=ES256} new tokens are signed with the EC key and
+     * its public half is published as a JWK, while the HMAC keys stay in the ring for
+     * verification so tokens issued before the switch keep working until they expire.
+     * Without a configured EC key pair an ephemeral one is generated, which only suits a
+     * single node since tokens will not verify after a restart.
+     */
+    public JwtUtil(
+            @Value("${jwt.secret.key}") String secret,
+            @Value("${jwt.secret.key-id:primary}") String keyId,
+            @Value("${jwt.secret.previous-keys:}") String previousKeys,
+            @Value("${jwt.signing.algorithm:HS256}") String signingAlgorithm,
+            @Value("${jwt.signing.ec.key-id:ec-1}") String ecKeyId,
+            @Value("${jwt.signing.ec.private-key:}") String ecPrivateKey,
+            @Value("${jwt.signing.ec.public-key:}") String ecPublicKey,
+            @Value("${jwt.signing.ec.previous-public-keys:}") String ecPreviousPublicKeys
+    ) {
+        JwtKeyRing ring = JwtKeyRing.of(keyId, Algorithm.HMAC256(secret), ISSUER);
+
+        // previous keys are configured as "kid:secret" pairs separated by commas
+        for (String entry : previousKeys.split(",")) {
+            int separator = entry.indexOf(':');
+
+            if (separator > 0) {
+                String previousId = entry.substring(0, separator).trim();
+                String previousSecret = entry.substring(separator + 1).trim();
+                ring = ring.withPreviousKey(previousId, Algorithm.HMAC256(previousSecret), ISSUER);
+            }
+        }
 
-            return JWT.create()
-                .withIssuer("iam-api")
-                .withSubject(user.getEmail())
-                .withClaim("roles", collectRoles(user))
-                .withClaim("permissions", collectPermissions(user))
-                .withExpiresAt(generateExpirationDateForAccessToken())
-                .sign(algorithm);
-        } catch (JWTCreationException e) {
-            throw new CustomException(ExceptionMessages.FAILED_TO_CREATE_TOKEN, e, HttpStatus.INTERNAL_SERVER_ERROR);
+        if ("ES256".equalsIgnoreCase(signingAlgorithm)) {
+            KeyPair pair;
+
+            if (ecPrivateKey.isBlank() && ecPublicKey.isBlank()) {
+                log.warn("No EC signing key configured, using an ephemeral key pair");
+                pair = EcKeys.generate();
+            } else {
+                pair = EcKeys.load(ecPrivateKey, ecPublicKey);
+            }
+
+            ECPublicKey publicKey = (ECPublicKey) pair.getPublic();
+            ring = ring.rotate(ecKeyId, Algorithm.ECDSA256(publicKey, (ECPrivateKey) pair.getPrivate()), publicKey, ISSUER);
+
+            // previous EC keys are configured as "kid:base64 public key" pairs separated by commas
+            for (String entry : ecPreviousPublicKeys.split(",")) {
+                int separator = entry.indexOf(':');
+
+                if (separator > 0) {
+                    ECPublicKey previous = EcKeys.parsePublicKey(entry.substring(separator + 1).trim());
+                    ring = ring.withPreviousKey(
+                        entry.substring(0, separator).trim(), Algorithm.ECDSA256(previous, null), previous, ISSUER);
+                }
+            }
+        } else if (!"HS256".equalsIgnoreCase(signingAlgorithm)) {
+            throw new IllegalArgumentException("Unsupported jwt.signing.algorithm " + signingAlgorithm);
         }
+
+        setKeyRing(ring);
+    }
+
+    /**
+     * Both token kinds carry the session family and its generation, so a rotated or
+     * revoked session can invalidate every token it issued before.
+     */
+    public IssuedToken generateAccessToken(User user, UUID familyId, int generation) {
+        return issue(user, familyId, generation, ACCESS_TOKEN_TYPE, ACCESS_TOKEN_TTL_SECONDS);
+    }
+
+    public IssuedToken generateRefreshToken(User user, UUID familyId, int generation) {
+        return issue(user, familyId, generation, REFRESH_TOKEN_TYPE, REFRESH_TOKEN_TTL_SECONDS);
+    }
+
+    /**
+     * Verifies the token once and returns everything callers need from it, or
+     * {@code null} when the token is malformed, expired or not signed by a known key.
+     */
+    public JwtClaims decodeToken(String token) {
+        return verifyToken(token).claims();
     }
 
-    public String generateRefreshToken(User user) {
+    /**
+     * Same as {@link #decodeToken(String)} but keeps the reason a token was rejected,
+     * for callers that report on it.
+     */
+    public TokenVerification verifyToken(String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
+            DecodedJWT decoded = JWT.decode(token);
+            JWTVerifier verifier = this.keyRing.verifierFor(decoded.getKeyId());
+
+            if (verifier == null) {
+                return TokenVerification.rejected(TokenVerification.Status.UNKNOWN_KEY);
+            }
+
+            verifier.verify(decoded);
+
+            return new TokenVerification(TokenVerification.Status.VALID, new JwtClaims(
+                decoded.getSubject(),
+                decoded.getId(),
+                toUtc(decoded.getIssuedAtAsInstant()),
+                toUtc(decoded.getExpiresAtAsInstant()),
+                claimAsList(decoded, "roles"),
+                claimAsList(decoded, "permissions"),
+                decoded.getClaim("fam").isMissing() ? null : UUID.fromString(decoded.getClaim("fam").asString()),
+                decoded.getClaim("gen").asInt(),
+                decoded.getClaim("ver").asInt(),
+                decoded.getClaim("typ").asString()));
+        } catch (TokenExpiredException e) {
+            return TokenVerification.rejected(TokenVerification.Status.EXPIRED);
+        } catch (SignatureVerificationException | AlgorithmMismatchException e) {
+            return TokenVerification.rejected(TokenVerification.Status.INVALID_SIGNATURE);
+        } catch (InvalidClaimException e) {
+            return TokenVerification.rejected(TokenVerification.Status.INVALID_CLAIMS);
+        } catch (Exception e) {
+            return TokenVerification.rejected(TokenVerification.Status.MALFORMED);
+        }
+    }
 
-            return JWT.create()
-                .withIssuer("iam-api")
+    private IssuedToken issue(User user, UUID familyId, int generation, String type, long ttlSeconds) {
+        try {
+            JwtKeyRing ring = this.keyRing;
+            String jti = UUID.randomUUID().toString();
+            // JWT timestamps have second precision, truncate so the returned expiry matches the token
+            Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            Instant expiresAt = issuedAt.plusSeconds(ttlSeconds);
+
+            String token = JWT.create()
+                .withKeyId(ring.currentKeyId())
+                .withIssuer(ISSUER)
                 .withSubject(user.getEmail())
-                .withJWTId(UUID.randomUUID().toString())
+                .withJWTId(jti)
+                .withIssuedAt(issuedAt)
                 .withClaim("roles", collectRoles(user))
                 .withClaim("permissions", collectPermissions(user))
-                .withExpiresAt(generateExpirationDateForRefreshToken())
-                .sign(algorithm);
+                .withClaim("fam", familyId.toString())
+                .withClaim("gen", generation)
+                .withClaim("ver", user.getTokenVersion())
+                .withClaim("typ", type)
+                .withExpiresAt(expiresAt)
+                .sign(ring.signer());
+
+            return new IssuedToken(token, jti, toUtc(expiresAt));
         } catch (JWTCreationException e) {
             throw new CustomException(ExceptionMessages.FAILED_TO_CREATE_TOKEN, e, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    public String validateToken(String token) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
+    /**
+     * Makes a key configured in {@code jwt.secret.previous-keys} the signing key. Tokens
+     * signed with earlier keys keep verifying until those keys are retired. Secrets are
+     * never passed at runtime, every node reads them from its own configuration.
+     *
+     * @throws IllegalArgumentException when no signing key {@code keyId} is configured
+     * @throws IllegalStateException when the key uses another algorithm than the current signer
+     */
+    public synchronized void promoteKey(String keyId) {
+        setKeyRing(this.keyRing.promote(keyId));
+    }
 
-            return JWT.require(algorithm)
-                .withIssuer("iam-api")
-                .build()
-                .verify(token)
-                .getSubject();
-        } catch (Exception e) {
-            return null;
-        }
+    public synchronized void retireKey(String keyId) {
+        setKeyRing(this.keyRing.retire(keyId));
     }
 
-    private Instant generateExpirationDateForAccessToken() {
-        return Instant.now().plusSeconds(900); // 15 min
+    public String getCurrentKeyId() {
+        return this.keyRing.currentKeyId();
     }
 
-    private Instant generateExpirationDateForRefreshToken() {
-        return Instant.now().plusSeconds(604800); // 7 days
+    public boolean hasKey(String keyId) {
+        return this.keyRing.contains(keyId);
     }
 
-    public LocalDateTime getExpirationDateFromToken(String token) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-
-            return JWT.require(algorithm)
-                .withIssuer("iam-api")
-                .build()
-                .verify(token)
-                .getExpiresAt()
-                .toInstant()
-                .atZone(ZoneOffset.UTC)
-                .toLocalDateTime();
-        } catch (Exception e) {
-            throw new CustomException(ExceptionMessages.FAILED_TO_GET_EXPIRATION_TIME, e, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public JwkSet getJwkSet() {
+        return this.jwkSet;
+    }
+
+    private void setKeyRing(JwtKeyRing ring) {
+        this.jwkSet = JwkSet.of(ring.publicKeys());
+        this.keyRing = ring;
+    }
+
+    private static LocalDateTime toUtc(Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static List<String> claimAsList(DecodedJWT decoded, String claim) {
+        List<String> values = decoded.getClaim(claim).asList(String.class);
+        return values == null ? List.of() : List.copyOf(values);
     }
 
-    private List<String> collectRoles(User user) {
+    public static List<String> collectRoles(User user) {
         return user.getRoles()
             .stream()
             .map(Role::getName)
             .collect(Collectors.toList());
     }
 
-    private List<String> collectPermissions(User user) {
+    public static List<String> collectPermissions(User user) {
         return user.getRoles()
             .stream()
             .flatMap(role -> role.getPermissions().stream())
@@ -0,0 +1,37 @@
+package com.matt.iam.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Produces compact, fixed-size fingerprints of raw JWT strings so they can be
+ * indexed without keeping the whole token around.
+ */
+public final class TokenHashUtil {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private TokenHashUtil() {}
+
+    public static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String fingerprint(String token) {
+        return encode(hash(token));
+    }
+
+    public static String encode(byte[] hash) {
+        return ENCODER.encodeToString(hash);
+    }
+
+    public static byte[] decode(String fingerprint) {
+        return DECODER.decode(fingerprint);
+    }
+}
@@ -0,0 +1,23 @@
+package com.matt.iam.utils;
+
+/**
+ * Result of verifying a token. {@code claims} is only set when the status is
+ * {@link Status#VALID}; the other statuses say why the token was rejected.
+ */
+public record TokenVerification(
+    Status status,
+    JwtClaims claims
+) {
+    public enum Status {
+        VALID,
+        EXPIRED,
+        INVALID_SIGNATURE,
+        UNKNOWN_KEY,
+        INVALID_CLAIMS,
+        MALFORMED
+    }
+
+    static TokenVerification rejected(Status status) {
+        return new TokenVerification(status, null);
+    }
+}
@@ -0,0 +1,59 @@
+-- One-time upgrade of a database created before tokens were stored as SHA-256 digests,
+-- sessions were rotated in place and users carried a token version.
+--
+-- Hibernate's ddl-auto=update cannot add these NOT NULL columns to populated tables and
+-- never drops the old "token" columns, whose NOT NULL constraint then fails every insert.
+-- Run this once against the prod database before the first start of this version; the
+-- unique constraints on token_hash and family_id are left to ddl-auto=update. The indexes
+-- are created here under the names the entities declare, so ddl-auto=update finds them and
+-- does not build them again while the app starts. Running it again is harmless. Needs
+-- Postgres 13+ for sha256() and gen_random_uuid().
+--
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f src/main/resources/db/upgrade-token-storage.sql
+
+begin;
+
+alter table users add column if not exists token_version integer not null default 0;
+
+alter table refresh_tokens add column if not exists token_hash bytea;
+alter table refresh_tokens add column if not exists family_id uuid;
+alter table refresh_tokens add column if not exists generation integer not null default 0;
+alter table refresh_tokens add column if not exists rotated_at timestamp(6);
+
+alter table blacklisted_tokens add column if not exists token_hash bytea;
+
+-- digests of the stored raw JWTs, so logout and blacklist lookups keep matching them
+do $$
+begin
+    if exists (select 1 from information_schema.columns
+               where table_name = 'refresh_tokens' and column_name = 'token') then
+        execute 'update refresh_tokens set token_hash = sha256(convert_to(token, ''UTF8'')) where token_hash is null';
+        execute 'alter table refresh_tokens drop column token';
+    end if;
+
+    if exists (select 1 from information_schema.columns
+               where table_name = 'blacklisted_tokens' and column_name = 'token') then
+        execute 'update blacklisted_tokens set token_hash = sha256(convert_to(token, ''UTF8'')) where token_hash is null';
+        execute 'alter table blacklisted_tokens drop column token';
+    end if;
+end
+$$;
+
+-- every existing row was its own session; their tokens carry no family and can no
+-- longer be refreshed, only logged out
+update refresh_tokens set family_id = gen_random_uuid() where family_id is null;
+
+alter table refresh_tokens alter column token_hash set not null;
+alter table refresh_tokens alter column family_id set not null;
+alter table blacklisted_tokens alter column token_hash set not null;
+
+-- ExpiredTokenReaper deletes by expires_at, the revocation index also loads blacklisted_tokens by it
+create index if not exists idx_refresh_tokens_expires_at on refresh_tokens (expires_at);
+create index if not exists idx_blacklisted_tokens_expires_at on blacklisted_tokens (expires_at);
+
+-- revokeAllButNewest and revokeExpiredByUserId only touch live sessions of one user
+create index if not exists idx_refresh_tokens_user_id on refresh_tokens (user_id) where is_revoked = false;
+-- the revocation index rebuilds family floors from recently rotated sessions
+create index if not exists idx_refresh_tokens_rotated_at on refresh_tokens (rotated_at);
+
+commit;
@@ -0,0 +1,56 @@
+package com.matt.iam.benchmarks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.utils.JwtUtil;
+
+/**
+ * Cost of flattening a user's role graph, done for every issued token and every
+ * snapshot built for the filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationBenchmark {
+    @Param({"1", "5"})
+    private int roles;
+
+    @Param({"2", "20"})
+    private int permissionsPerRole;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        this.user = BenchmarkFixtures.userWithRoles(this.roles, this.permissionsPerRole);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return this.user.getAuthorities();
+    }
+
+    @Benchmark
+    public List<String> collectPermissions() {
+        return JwtUtil.collectPermissions(this.user);
+    }
+}
@@ -0,0 +1,58 @@
+package com.matt.iam.benchmarks;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import com.matt.iam.entities.Permission;
+import com.matt.iam.entities.Role;
+import com.matt.iam.entities.User;
+import com.matt.iam.utils.JwtUtil;
+
+final class BenchmarkFixtures {
+    static final String SECRET = "benchmark-secret-key-with-enough-entropy";
+    static final UUID FAMILY = UUID.fromString("7f5c2a0e-4d1b-4c55-9a8e-3b2f1e6d0c9a");
+
+    private BenchmarkFixtures() {}
+
+    static JwtUtil jwtUtil() {
+        return new JwtUtil(SECRET, "primary", "", "HS256", "ec-1", "", "", "");
+    }
+
+    static User user() {
+        Role role = new Role();
+        role.setName("USER");
+        role.setPermissions(Set.of(
+            new Permission(null, "READ_PRIVILEGES"),
+            new Permission(null, "WRITE_PRIVILEGES")));
+
+        User user = new User();
+        user.setEmail("bench@iam.local");
+        user.setNickname("bench");
+        user.setEnabled(true);
+        user.setRoles(Set.of(role));
+        return user;
+    }
+
+    // a user with a wider authorization graph than the default USER role
+    static User userWithRoles(int roles, int permissionsPerRole) {
+        Set<Role> assigned = new HashSet<>();
+
+        for (int r = 0; r < roles; r++) {
+            Set<Permission> permissions = new HashSet<>();
+
+            for (int p = 0; p < permissionsPerRole; p++) {
+                permissions.add(new Permission(null, "PERMISSION_" + r + "_" + p));
+            }
+
+            Role role = new Role();
+            role.setName("ROLE_" + r);
+            role.setPermissions(permissions);
+            assigned.add(role);
+        }
+
+        User user = user();
+        user.setRoles(assigned);
+        return user;
+    }
+}
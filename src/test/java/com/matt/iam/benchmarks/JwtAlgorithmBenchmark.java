@@ -0,0 +1,55 @@
+package com.matt.iam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.utils.IssuedToken;
+import com.matt.iam.utils.JwtUtil;
+
+/**
+ * Compares the cost of signing and verifying with the shared HMAC secret against the
+ * ES256 key published through the JWKS endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+    @Param({"HS256", "ES256"})
+    private String algorithm;
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String accessToken;
+
+    @Setup
+    public void setup() {
+        this.jwtUtil = new JwtUtil(BenchmarkFixtures.SECRET, "primary", "", this.algorithm, "ec-1", "", "", "");
+        this.user = BenchmarkFixtures.user();
+        this.accessToken = this.jwtUtil.generateAccessToken(this.user, BenchmarkFixtures.FAMILY, 0).token();
+    }
+
+    @Benchmark
+    public IssuedToken sign() {
+        return this.jwtUtil.generateAccessToken(this.user, BenchmarkFixtures.FAMILY, 0);
+    }
+
+    @Benchmark
+    public String verify() {
+        return this.jwtUtil.decodeToken(this.accessToken).subject();
+    }
+}
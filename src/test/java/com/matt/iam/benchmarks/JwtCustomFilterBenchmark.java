@@ -0,0 +1,102 @@
+package com.matt.iam.benchmarks;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.infra.AuthMetrics;
+import com.matt.iam.infra.InProcessRevocationEventBus;
+import com.matt.iam.infra.JwtCustomFilter;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.services.UserAuthorization;
+import com.matt.iam.services.UserAuthorizationService;
+import com.matt.iam.services.UserTokenState;
+import com.matt.iam.utils.JwtUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+
+/**
+ * One authenticated request through the filter: signature verification, revocation
+ * check and user snapshot lookup. The snapshot lookup is stubbed as a cache hit and
+ * the revocation index is empty, which is the common case in production. With
+ * {@code statelessPrincipal} only the token state is looked up and the principal is
+ * built from the claims.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtCustomFilterBenchmark {
+    @Param({"false", "true"})
+    private boolean statelessPrincipal;
+
+    private JwtCustomFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        JwtUtil jwtUtil = BenchmarkFixtures.jwtUtil();
+        User user = BenchmarkFixtures.user();
+        UserAuthorization snapshot = new UserAuthorization(null, user.getEmail(), true, user.getTokenVersion(),
+            JwtUtil.collectRoles(user), JwtUtil.collectPermissions(user));
+
+        UserAuthorizationService userAuthorizationService = new UserAuthorizationService(
+                mock(UserRepository.class), new InProcessRevocationEventBus(), mock(CacheManager.class)) {
+            @Override
+            public Optional<UserAuthorization> findByEmail(String email) {
+                return Optional.of(snapshot);
+            }
+
+            @Override
+            public Optional<UserTokenState> findTokenStateByEmail(String email) {
+                return Optional.of(snapshot.tokenState());
+            }
+        };
+        RevocationIndex revocationIndex = new RevocationIndex(mock(BlacklistedTokenRepository.class),
+            mock(RefreshTokenRepository.class), new InProcessRevocationEventBus(), 100_000, 0.001, 10_000);
+
+        this.filter = new JwtCustomFilter(jwtUtil, userAuthorizationService, revocationIndex,
+            new AuthMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(this.filter, "statelessPrincipal", this.statelessPrincipal);
+        this.authorization = "Bearer " + jwtUtil.generateAccessToken(user, BenchmarkFixtures.FAMILY, 0).token();
+    }
+
+    @Benchmark
+    public int authenticate() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/me");
+        request.addHeader("Authorization", this.authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request, response, new MockFilterChain());
+        SecurityContextHolder.clearContext();
+
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,92 @@
+package com.matt.iam.benchmarks;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.matt.iam.entities.Permission;
+import com.matt.iam.entities.Role;
+import com.matt.iam.entities.User;
+import com.matt.iam.utils.IssuedToken;
+import com.matt.iam.utils.JwtUtil;
+
+/**
+ * Compares the cached signer/verifier in {@link JwtUtil} with building the HMAC
+ * algorithm and verifier on every call, as JwtUtil used to do. Both sign paths write
+ * the same claims so only the algorithm caching differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+    private JwtUtil jwtUtil;
+    private User user;
+    private String accessToken;
+
+    @Setup
+    public void setup() {
+        this.jwtUtil = BenchmarkFixtures.jwtUtil();
+        this.user = BenchmarkFixtures.user();
+        this.accessToken = this.jwtUtil.generateAccessToken(this.user, BenchmarkFixtures.FAMILY, 0).token();
+    }
+
+    @Benchmark
+    public IssuedToken signCached() {
+        return this.jwtUtil.generateAccessToken(this.user, BenchmarkFixtures.FAMILY, 0);
+    }
+
+    @Benchmark
+    public String signPerCall() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        return JWT.create()
+            .withKeyId("primary")
+            .withIssuer("iam-api")
+            .withSubject(this.user.getEmail())
+            .withJWTId(UUID.randomUUID().toString())
+            .withIssuedAt(issuedAt)
+            .withClaim("roles", this.user.getRoles().stream().map(Role::getName).toList())
+            .withClaim("permissions", this.user.getRoles().stream()
+                .flatMap(role -> role.getPermissions().stream())
+                .map(Permission::getName)
+                .distinct()
+                .toList())
+            .withClaim("fam", BenchmarkFixtures.FAMILY.toString())
+            .withClaim("gen", 0)
+            .withClaim("ver", this.user.getTokenVersion())
+            .withClaim("typ", JwtUtil.ACCESS_TOKEN_TYPE)
+            .withExpiresAt(issuedAt.plusSeconds(900))
+            .sign(Algorithm.HMAC256(BenchmarkFixtures.SECRET));
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return this.jwtUtil.decodeToken(this.accessToken).subject();
+    }
+
+    @Benchmark
+    public String verifyPerCall() {
+        return JWT.require(Algorithm.HMAC256(BenchmarkFixtures.SECRET))
+            .withIssuer("iam-api")
+            .build()
+            .verify(this.accessToken)
+            .getSubject();
+    }
+}
@@ -0,0 +1,64 @@
+package com.matt.iam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * Hashing cost per encoder and work factor, built the same way as in
+ * {@code CustomSecurityConfig}. Each value of {@code encoder} is "name:work factor".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+    private static final String PASSWORD = "Secret@123";
+
+    @Param({"bcrypt:4", "bcrypt:10", "bcrypt:12", "pbkdf2:310000", "argon2:19456"})
+    private String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        String[] parts = this.encoder.split(":");
+        int workFactor = Integer.parseInt(parts[1]);
+
+        this.passwordEncoder = switch (parts[0]) {
+            case "bcrypt" -> new BCryptPasswordEncoder(workFactor);
+            case "pbkdf2" -> new Pbkdf2PasswordEncoder("", 16, workFactor,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+            case "argon2" -> new Argon2PasswordEncoder(16, 32, 1, workFactor, 2);
+            default -> throw new IllegalArgumentException(this.encoder);
+        };
+        this.hash = this.passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return this.passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return this.passwordEncoder.matches(PASSWORD, this.hash);
+    }
+}
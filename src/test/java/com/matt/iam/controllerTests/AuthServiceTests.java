@@ -1,58 +1,312 @@
-package com.matt.iam.controllerTests;
-
-import com.matt.iam.dtos.request.LoginRequest;
-import com.matt.iam.dtos.request.RefreshTokenRequest;
-import com.matt.iam.dtos.request.RegisterRequest;
-import com.matt.iam.repositories.BlacklistedTokenRepository;
-import com.matt.iam.repositories.RefreshTokenRepository;
-import com.matt.iam.repositories.RoleRepository;
-import com.matt.iam.repositories.UserRepository;
-import com.matt.iam.services.AuthService;
-import com.matt.iam.utils.JwtUtil;
-import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.crypto.password.PasswordEncoder;
-
-@ExtendWith(MockitoExtension.class)
-public class AuthServiceTests {
-    @Mock
-    private UserRepository userRepository;
-
-    @Mock
-    private RoleRepository roleRepository;
-
-    @Mock
-    private RefreshTokenRepository refreshTokenRepository;
-
-    @Mock
-    private BlacklistedTokenRepository blacklistedTokenRepository;
-
-    @Mock
-    private PasswordEncoder passwordEncoder;
-
-    @Mock
-    private AuthenticationManager authenticationManager;
-
-    @Mock
-    private JwtUtil jwtUtil;
-
-    @InjectMocks
-    private AuthService authService;
-
-    private static int TEST_MAX_LOGIN_ATTEMPTS = 5;
-    private static int TEST_LOCK_TIME_MINUTES = 30;
-    private static int TEST_MAX_REFRESH_TOKENS = 5;
-    private RegisterRequest registerRequestTest;
-    private LoginRequest loginRequestTest;
-    private RefreshTokenRequest refreshRequestTest;
-    private RefreshTokenRequest logoutRequestTest;
-
-    @BeforeAll
-    static void setup() {
-        
-    }
-}
+package com.matt.iam.controllerTests;
+
+import com.matt.iam.dtos.request.LoginRequest;
+import com.matt.iam.dtos.request.RefreshTokenRequest;
+import com.matt.iam.dtos.request.RegisterRequest;
+import com.matt.iam.entities.RefreshToken;
+import com.matt.iam.entities.User;
+import com.matt.iam.exception.CustomException;
+import com.matt.iam.exception.ExceptionMessages;
+import com.matt.iam.exception.TokenReuseException;
+import com.matt.iam.infra.AuthMetrics;
+import com.matt.iam.infra.LoginActivityBuffer;
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.repositories.RoleRepository;
+import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.repositories.UserRepository.FailedLoginAttempt;
+import com.matt.iam.services.AuthService;
+import com.matt.iam.services.PasswordUpgradeService;
+import com.matt.iam.utils.IssuedToken;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenHashUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AuthServiceTests {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private RevocationEventBus revocationEventBus;
+
+    @Mock
+    private PasswordUpgradeService passwordUpgradeService;
+
+    @Mock
+    private LoginActivityBuffer loginActivityBuffer;
+
+    @Mock
+    private AuthMetrics authMetrics;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private AuthService authService;
+
+    private static int TEST_MAX_LOGIN_ATTEMPTS = 5;
+    private static int TEST_LOCK_TIME_MINUTES = 30;
+    private static int TEST_MAX_REFRESH_TOKENS = 5;
+    private RegisterRequest registerRequestTest;
+    private LoginRequest loginRequestTest;
+    private RefreshTokenRequest refreshRequestTest;
+    private RefreshTokenRequest logoutRequestTest;
+
+    @BeforeAll
+    static void setup() {
+        
+    }
+
+    @BeforeEach
+    void init() {
+        loginRequestTest = new LoginRequest("user@iam.local", "Secret@123");
+    }
+
+    @Test
+    void loginCountsFailedAttemptWithoutSavingTheUser() {
+        User user = enabledUser();
+        when(userRepository.findByEmail(loginRequestTest.email())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequestTest.password(), user.getPassword())).thenReturn(false);
+        when(userRepository.incrementFailedLoginAttempts(eq(user.getId()), eq(TEST_MAX_LOGIN_ATTEMPTS), any(), any()))
+                .thenReturn(attempt(1, false));
+
+        CustomException e = assertThrows(CustomException.class, () -> authService.login(loginRequestTest));
+
+        assertEquals(ExceptionMessages.INVALID_CREDENTIALS, e.getMessage());
+        verify(userRepository, never()).save(any());
+        verify(authMetrics, never()).accountLocked();
+    }
+
+    @Test
+    void loginReportsLockOnceThresholdIsReached() {
+        User user = enabledUser();
+        when(userRepository.findByEmail(loginRequestTest.email())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequestTest.password(), user.getPassword())).thenReturn(false);
+        when(userRepository.incrementFailedLoginAttempts(eq(user.getId()), eq(TEST_MAX_LOGIN_ATTEMPTS), any(), any()))
+                .thenReturn(attempt(TEST_MAX_LOGIN_ATTEMPTS, true));
+
+        CustomException e = assertThrows(CustomException.class, () -> authService.login(loginRequestTest));
+
+        assertEquals(ExceptionMessages.TOO_MANY_ATTEMPTS, e.getMessage());
+        assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+        verify(authMetrics).accountLocked();
+    }
+
+    @Test
+    void loginRacingPastThresholdDoesNotCountLockAgain() {
+        User user = enabledUser();
+        when(userRepository.findByEmail(loginRequestTest.email())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequestTest.password(), user.getPassword())).thenReturn(false);
+        when(userRepository.incrementFailedLoginAttempts(eq(user.getId()), eq(TEST_MAX_LOGIN_ATTEMPTS), any(), any()))
+                .thenReturn(attempt(TEST_MAX_LOGIN_ATTEMPTS + 1, false));
+
+        CustomException e = assertThrows(CustomException.class, () -> authService.login(loginRequestTest));
+
+        assertEquals(ExceptionMessages.TOO_MANY_ATTEMPTS, e.getMessage());
+        verify(authMetrics, never()).accountLocked();
+    }
+
+    @Test
+    void loginWritesSessionOnlyInsideTransaction() {
+        User user = enabledUser();
+        user.setFailedLoginAttempts(2);
+        IssuedToken issued = new IssuedToken("token", "jti", LocalDateTime.now(ZoneOffset.UTC).plusDays(1));
+        when(userRepository.findByEmail(loginRequestTest.email())).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(loginRequestTest.password(), user.getPassword())).thenReturn(true);
+        when(jwtUtil.generateAccessToken(eq(user), any(), eq(0))).thenReturn(issued);
+        when(jwtUtil.generateRefreshToken(eq(user), any(), eq(0))).thenReturn(issued);
+
+        authService.login(loginRequestTest);
+
+        ArgumentCaptor<Consumer<TransactionStatus>> callback = ArgumentCaptor.captor();
+        verify(transactionTemplate).executeWithoutResult(callback.capture());
+        verify(userRepository, never()).resetFailedLoginAttempts(any());
+        verify(refreshTokenRepository, never()).revokeAllButNewest(any(), anyInt());
+        verify(refreshTokenRepository, never()).save(any());
+
+        callback.getValue().accept(null);
+
+        verify(userRepository).resetFailedLoginAttempts(user.getId());
+        verify(refreshTokenRepository).revokeAllButNewest(user.getId(), TEST_MAX_REFRESH_TOKENS - 1);
+        verify(refreshTokenRepository).save(any());
+    }
+
+    @Test
+    void revokeAllSessionsBumpsTokenVersionOnce() {
+        when(userRepository.incrementTokenVersion("user@iam.local")).thenReturn(1);
+
+        authService.revokeAllSessions("user@iam.local");
+
+        verify(userRepository).incrementTokenVersion("user@iam.local");
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void refreshRotatesSessionAndSupersedesPreviousGeneration() {
+        RefreshToken session = session(enabledUser(), 2, "refresh-2");
+        stubRefresh(session, "refresh-2", 2, 0);
+        when(refreshTokenRepository.rotate(eq(session.getFamilyId()), eq(2), any(), any(), any())).thenReturn(1);
+
+        authService.refreshToken(new RefreshTokenRequest("access-2", "refresh-2"));
+
+        verify(revocationIndex).supersede(session.getFamilyId(), 3);
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void refreshWithSupersededGenerationRevokesFamily() {
+        RefreshToken session = session(enabledUser(), 3, "refresh-3");
+        stubRefresh(session, "refresh-2", 2, 0);
+
+        assertThrows(TokenReuseException.class,
+                () -> authService.refreshToken(new RefreshTokenRequest("access-2", "refresh-2")));
+
+        verify(refreshTokenRepository).revokeFamily(eq(session.getFamilyId()), any());
+        verify(revocationIndex).revokeFamily(session.getFamilyId());
+        verify(refreshTokenRepository, never()).rotate(any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void refreshLosingRotationRaceIsTreatedAsReuse() {
+        RefreshToken session = session(enabledUser(), 2, "refresh-2");
+        stubRefresh(session, "refresh-2", 2, 0);
+        when(refreshTokenRepository.rotate(eq(session.getFamilyId()), eq(2), any(), any(), any())).thenReturn(0);
+
+        assertThrows(TokenReuseException.class,
+                () -> authService.refreshToken(new RefreshTokenRequest("access-2", "refresh-2")));
+
+        verify(refreshTokenRepository).revokeFamily(eq(session.getFamilyId()), any());
+        verify(revocationIndex, never()).supersede(any(), anyInt());
+    }
+
+    @Test
+    void refreshRejectsTokenIssuedBeforeVersionBump() {
+        User user = enabledUser();
+        user.setTokenVersion(1);
+        RefreshToken session = session(user, 2, "refresh-2");
+        stubRefresh(session, "refresh-2", 2, 0);
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> authService.refreshToken(new RefreshTokenRequest("access-2", "refresh-2")));
+
+        assertEquals(ExceptionMessages.TOKEN_WAS_REVOKED, e.getMessage());
+        verify(refreshTokenRepository, never()).rotate(any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void refreshWithAccessTokenDoesNotRevokeFamily() {
+        UUID familyId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        when(jwtUtil.decodeToken("access-0")).thenReturn(new JwtClaims("user@iam.local", "jti", now, now.plusMinutes(15),
+                List.of(), List.of(), familyId, 0, 0, JwtUtil.ACCESS_TOKEN_TYPE));
+
+        CustomException e = assertThrows(CustomException.class,
+                () -> authService.refreshToken(new RefreshTokenRequest("access-0", "access-0")));
+
+        assertEquals(ExceptionMessages.INVALID_TOKEN, e.getMessage());
+        verify(refreshTokenRepository, never()).findByFamilyId(any());
+        verify(refreshTokenRepository, never()).revokeFamily(any(), any());
+        verify(revocationIndex, never()).revokeFamily(any());
+    }
+
+    @Test
+    void logoutRevokesFamilySoRefreshTokenStopsWorkingAsBearer() {
+        User user = enabledUser();
+        RefreshToken session = session(user, 0, "refresh-0");
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        when(jwtUtil.decodeToken("refresh-0")).thenReturn(new JwtClaims(user.getEmail(), "jti", now, now.plusDays(1),
+                List.of(), List.of(), session.getFamilyId(), 0, 0, JwtUtil.REFRESH_TOKEN_TYPE));
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(refreshTokenRepository.findByTokenHash(any())).thenReturn(Optional.of(session));
+
+        authService.logout(new RefreshTokenRequest("access-0", "refresh-0"));
+
+        verify(refreshTokenRepository).revokeFamily(eq(session.getFamilyId()), any());
+        verify(revocationIndex).revokeFamily(session.getFamilyId());
+        verify(revocationIndex, never()).revoke(any(), any());
+    }
+
+    private void stubRefresh(RefreshToken session, String refreshToken, int generation, int tokenVersion) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        JwtClaims claims = new JwtClaims(session.getUser().getEmail(), "jti", now, now.plusDays(1),
+                List.of(), List.of(), session.getFamilyId(), generation, tokenVersion, JwtUtil.REFRESH_TOKEN_TYPE);
+        when(jwtUtil.decodeToken(refreshToken)).thenReturn(claims);
+        when(refreshTokenRepository.findByFamilyId(session.getFamilyId())).thenReturn(Optional.of(session));
+        if (generation == session.getGeneration() && tokenVersion == session.getUser().getTokenVersion()) {
+            IssuedToken issued = new IssuedToken("next", "next-jti", now.plusDays(1));
+            when(jwtUtil.generateAccessToken(any(), eq(session.getFamilyId()), eq(generation + 1))).thenReturn(issued);
+            when(jwtUtil.generateRefreshToken(any(), eq(session.getFamilyId()), eq(generation + 1))).thenReturn(issued);
+        }
+    }
+
+    private static FailedLoginAttempt attempt(int failedLoginAttempts, boolean lockedByThisAttempt) {
+        return new FailedLoginAttempt() {
+            public int getFailedLoginAttempts() { return failedLoginAttempts; }
+            public boolean getLockedByThisAttempt() { return lockedByThisAttempt; }
+        };
+    }
+
+    private static RefreshToken session(User user, int generation, String refreshToken) {
+        RefreshToken session = new RefreshToken();
+        session.setFamilyId(UUID.randomUUID());
+        session.setGeneration(generation);
+        session.setTokenHash(TokenHashUtil.hash(refreshToken));
+        session.setUser(user);
+        session.setExpiresAt(LocalDateTime.now(ZoneOffset.UTC).plusDays(1));
+        return session;
+    }
+
+    private static User enabledUser() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("user@iam.local");
+        user.setPassword("{bcrypt}hash");
+        user.setEnabled(true);
+        return user;
+    }
+}
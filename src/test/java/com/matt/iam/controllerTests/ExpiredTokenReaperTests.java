@@ -0,0 +1,93 @@
+package com.matt.iam.controllerTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.services.ExpiredTokenReaper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class ExpiredTokenReaperTests {
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_BATCHES = 3;
+
+    @Mock
+    private BlacklistedTokenRepository blacklistedTokenRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExpiredTokenReaper reaper;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        reaper = new ExpiredTokenReaper(blacklistedTokenRepository, refreshTokenRepository, meterRegistry,
+            BATCH_SIZE, MAX_BATCHES);
+    }
+
+    @Test
+    void stopsAfterFirstShortBatch() {
+        when(blacklistedTokenRepository.deleteExpiredBatch(any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE, 4);
+        when(refreshTokenRepository.deleteExpiredBatch(any(), eq(BATCH_SIZE))).thenReturn(0);
+
+        reaper.purgeExpiredTokens();
+
+        verify(blacklistedTokenRepository, times(2)).deleteExpiredBatch(any(), eq(BATCH_SIZE));
+        verify(refreshTokenRepository, times(1)).deleteExpiredBatch(any(), eq(BATCH_SIZE));
+        assertEquals(14, purged("blacklisted_tokens"));
+        assertEquals(0, purged("refresh_tokens"));
+    }
+
+    @Test
+    void leavesBacklogBeyondMaxBatchesForNextRun() {
+        when(blacklistedTokenRepository.deleteExpiredBatch(any(), eq(BATCH_SIZE))).thenReturn(0);
+        when(refreshTokenRepository.deleteExpiredBatch(any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE);
+
+        reaper.purgeExpiredTokens();
+
+        verify(refreshTokenRepository, times(MAX_BATCHES)).deleteExpiredBatch(any(), eq(BATCH_SIZE));
+        assertEquals(MAX_BATCHES * BATCH_SIZE, purged("refresh_tokens"));
+    }
+
+    @Test
+    void usesOneUtcCutoffForBothTables() {
+        ArgumentCaptor<LocalDateTime> blacklistCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> refreshCutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(blacklistedTokenRepository.deleteExpiredBatch(blacklistCutoff.capture(), eq(BATCH_SIZE))).thenReturn(0);
+        when(refreshTokenRepository.deleteExpiredBatch(refreshCutoff.capture(), eq(BATCH_SIZE))).thenReturn(0);
+
+        LocalDateTime before = LocalDateTime.now(ZoneOffset.UTC);
+        reaper.purgeExpiredTokens();
+        LocalDateTime after = LocalDateTime.now(ZoneOffset.UTC);
+
+        LocalDateTime cutoff = blacklistCutoff.getValue();
+        assertFalse(cutoff.isBefore(before));
+        assertFalse(cutoff.isAfter(after));
+        assertTrue(cutoff.isEqual(refreshCutoff.getValue()));
+    }
+
+    private double purged(String table) {
+        return meterRegistry.get("iam.token.purge.rows").tag("table", table).counter().count();
+    }
+}
@@ -0,0 +1,95 @@
+package com.matt.iam.controllerTests;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.infra.PasswordHashingExecutor;
+import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.services.PasswordUpgradeService;
+
+@ExtendWith(MockitoExtension.class)
+public class PasswordUpgradeServiceTests {
+    private static final String RAW_PASSWORD = "Secret@123";
+    private static final String OUTDATED_HASH = "$2a$04$outdated";
+    private static final String UPGRADED_HASH = "{argon2}upgraded";
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private PasswordUpgradeService passwordUpgradeService;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setPassword(OUTDATED_HASH);
+    }
+
+    @Test
+    void leavesCurrentHashAlone() {
+        when(passwordEncoder.upgradeEncoding(OUTDATED_HASH)).thenReturn(false);
+
+        passwordUpgradeService.upgradeIfNeeded(user, RAW_PASSWORD);
+
+        verify(passwordEncoder, never()).encode(any());
+        verifyNoInteractions(passwordHashingExecutor, userRepository);
+    }
+
+    @Test
+    void replacesOutdatedHashItWasComputedFrom() {
+        when(passwordEncoder.upgradeEncoding(OUTDATED_HASH)).thenReturn(true);
+        when(passwordEncoder.encode(RAW_PASSWORD)).thenReturn(UPGRADED_HASH);
+
+        passwordUpgradeService.upgradeIfNeeded(user, RAW_PASSWORD);
+        runSubmittedUpgrade();
+
+        verify(userRepository).updatePassword(user.getId(), OUTDATED_HASH, UPGRADED_HASH);
+    }
+
+    @Test
+    void losingRaceToPasswordChangeIsNoOp() {
+        when(passwordEncoder.upgradeEncoding(OUTDATED_HASH)).thenReturn(true);
+        when(passwordEncoder.encode(RAW_PASSWORD)).thenReturn(UPGRADED_HASH);
+        when(userRepository.updatePassword(user.getId(), OUTDATED_HASH, UPGRADED_HASH)).thenReturn(0);
+
+        passwordUpgradeService.upgradeIfNeeded(user, RAW_PASSWORD);
+        // the password changed after the hash was read
+        user.setPassword("{bcrypt}changed");
+        runSubmittedUpgrade();
+
+        verify(userRepository).updatePassword(user.getId(), OUTDATED_HASH, UPGRADED_HASH);
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    private void runSubmittedUpgrade() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(passwordHashingExecutor).submit(eq("upgrade"), task.capture());
+        task.getValue().run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.matt.iam.controllerTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.matt.iam.dtos.response.IntrospectionResponse;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.services.TokenIntrospectionService;
+import com.matt.iam.services.UserAuthorization;
+import com.matt.iam.services.UserAuthorizationService;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenIntrospectionServiceTests {
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private RevocationIndex revocationIndex;
+
+    @Mock
+    private UserAuthorizationService userAuthorizationService;
+
+    @InjectMocks
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @Test
+    void describesActiveToken() {
+        JwtClaims claims = claims(0);
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(claims);
+        when(userAuthorizationService.findByEmail("user@iam.local")).thenReturn(Optional.of(user(0)));
+
+        IntrospectionResponse response = tokenIntrospectionService.introspect(TOKEN);
+
+        assertTrue(response.active());
+        assertEquals("user@iam.local", response.sub());
+        assertEquals(List.of("READ_PRIVILEGES"), response.permissions());
+        assertEquals(claims.jti(), response.jti());
+    }
+
+    @Test
+    void reportsRevokedTokenAsInactiveWithoutDetails() {
+        JwtClaims claims = claims(0);
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(claims);
+        when(revocationIndex.isRevoked(TOKEN, claims)).thenReturn(true);
+
+        IntrospectionResponse response = tokenIntrospectionService.introspect(TOKEN);
+
+        assertFalse(response.active());
+        assertNull(response.sub());
+    }
+
+    @Test
+    void reportsTokenOfOlderVersionAsInactive() {
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(claims(0));
+        when(userAuthorizationService.findByEmail("user@iam.local")).thenReturn(Optional.of(user(1)));
+
+        assertFalse(tokenIntrospectionService.introspect(TOKEN).active());
+    }
+
+    @Test
+    void reportsRefreshTokenAsInactive() {
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(claims(0, JwtUtil.REFRESH_TOKEN_TYPE));
+
+        assertFalse(tokenIntrospectionService.introspect(TOKEN).active());
+        verifyNoInteractions(revocationIndex, userAuthorizationService);
+    }
+
+    @Test
+    void reportsTokenWithoutTypeAsInactive() {
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(claims(0, null));
+
+        assertFalse(tokenIntrospectionService.introspect(TOKEN).active());
+    }
+
+    @Test
+    void checksRepeatedTokensOfBatchOnce() {
+        when(jwtUtil.decodeToken(TOKEN)).thenReturn(null);
+
+        List<IntrospectionResponse> results = tokenIntrospectionService.introspectAll(List.of(TOKEN, TOKEN, TOKEN));
+
+        assertEquals(3, results.size());
+        verify(jwtUtil, times(1)).decodeToken(TOKEN);
+    }
+
+    private static JwtClaims claims(int tokenVersion) {
+        return claims(tokenVersion, JwtUtil.ACCESS_TOKEN_TYPE);
+    }
+
+    private static JwtClaims claims(int tokenVersion, String type) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        return new JwtClaims("user@iam.local", UUID.randomUUID().toString(), now, now.plusMinutes(15),
+            List.of("USER"), List.of("READ_PRIVILEGES"), UUID.randomUUID(), 0, tokenVersion, type);
+    }
+
+    private static UserAuthorization user(int tokenVersion) {
+        return new UserAuthorization(UUID.randomUUID(), "user@iam.local", true, tokenVersion,
+            List.of("USER"), List.of("READ_PRIVILEGES"));
+    }
+}
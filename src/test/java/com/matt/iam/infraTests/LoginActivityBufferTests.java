@@ -0,0 +1,140 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.matt.iam.infra.LoginActivityBuffer;
+
+@ExtendWith(MockitoExtension.class)
+public class LoginActivityBufferTests {
+    private static final LocalDateTime NOW = LocalDateTime.now(ZoneOffset.UTC);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> batches;
+
+    private LoginActivityBuffer buffer;
+
+    @BeforeEach
+    void setup() {
+        buffer = new LoginActivityBuffer(jdbcTemplate, transactionTemplate, taskScheduler, 3);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void coalescesRepeatedLoginsIntoTheLatest() {
+        UUID userId = UUID.randomUUID();
+
+        buffer.recordLogin(userId, NOW.minusSeconds(10));
+        buffer.recordLogin(userId, NOW);
+        buffer.recordLogin(userId, NOW.minusSeconds(5));
+
+        assertEquals(1, buffer.pendingCount());
+
+        buffer.flush();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), batches.capture());
+        List<Object[]> rows = batches.getValue();
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[] { NOW, userId, NOW }, rows.get(0));
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void schedulesOneFlushOnceThresholdIsReached() {
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+
+        // the logins only queue the flush, the batch runs on the scheduler
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        ArgumentCaptor<Runnable> overflowFlush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, times(1)).schedule(overflowFlush.capture(), any(Instant.class));
+
+        overflowFlush.getValue().run();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), batches.capture());
+        assertEquals(4, batches.getValue().size());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void drainsPendingLoginsOnShutdown() {
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+        buffer.recordLogin(UUID.randomUUID(), NOW);
+
+        buffer.flushOnShutdown();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), batches.capture());
+        assertEquals(2, batches.getValue().size());
+        assertEquals(0, buffer.pendingCount());
+    }
+
+    @Test
+    void keepsLoginRecordedWhileFlushing() {
+        UUID userId = UUID.randomUUID();
+        buffer.recordLogin(userId, NOW.minusSeconds(10));
+        doAnswer(invocation -> {
+            buffer.recordLogin(userId, NOW);
+            return new int[] { 1 };
+        }).doReturn(new int[] { 1 }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        buffer.flush();
+
+        assertEquals(1, buffer.pendingCount());
+
+        buffer.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(NOW, batches.getAllValues().get(1).get(0)[0]);
+    }
+
+    @Test
+    void skipsDatabaseWhenNothingIsPending() {
+        buffer.flush();
+
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+}
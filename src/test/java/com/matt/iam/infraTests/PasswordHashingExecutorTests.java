@@ -0,0 +1,81 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.matt.iam.exception.CustomException;
+import com.matt.iam.infra.PasswordHashingExecutor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordHashingExecutorTests {
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new PasswordHashingExecutor(1, 1, 1000, meterRegistry);
+    }
+
+    @AfterEach
+    void teardown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void returnsResultAndRecordsTiming() {
+        assertEquals("hashed", executor.execute("encode", () -> "hashed"));
+        assertEquals(1, meterRegistry.get("iam.password.hashing").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void failsFastWith503WhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture.runAsync(() -> executor.execute("encode", () -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        running.await(5, TimeUnit.SECONDS);
+        CompletableFuture.runAsync(() -> executor.execute("encode", () -> true));
+        awaitQueueDepth(1);
+
+        CustomException e = assertThrows(CustomException.class, () -> executor.execute("encode", () -> true));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(1.0, meterRegistry.get("iam.password.hashing.rejected").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void propagatesExceptionsFromTheTask() {
+        assertThrows(IllegalArgumentException.class,
+            () -> executor.execute("matches", () -> { throw new IllegalArgumentException("bad hash"); }));
+    }
+
+    @Test
+    void backgroundTasksCanHashWithoutDeadlocking() throws Exception {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        executor.submit("upgrade", () -> result.complete(executor.execute("encode", () -> "rehashed")));
+
+        assertEquals("rehashed", result.get(2, TimeUnit.SECONDS));
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        for (int i = 0; i < 100 && meterRegistry.get("iam.password.hashing.queue.depth").gauge().value() < depth; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.matt.iam.infra.InProcessRevocationEventBus;
+import com.matt.iam.infra.RevocationEvent;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+
+public class RevocationEventBusTests {
+    private final BlacklistedTokenRepository blacklistedTokenRepository = mock(BlacklistedTokenRepository.class);
+    private RevocationIndex nodeA;
+    private RevocationIndex nodeB;
+
+    @BeforeEach
+    void setup() {
+        InProcessRevocationEventBus bus = new InProcessRevocationEventBus();
+        nodeA = node(bus);
+        nodeB = node(bus);
+    }
+
+    @Test
+    void logoutOnOneNodeIsHonoredOnTheOther() {
+        when(blacklistedTokenRepository.existsByTokenHash(any())).thenReturn(true);
+
+        nodeA.revoke("header.payload.signature", LocalDateTime.now(ZoneOffset.UTC).plusMinutes(10));
+
+        assertTrue(nodeB.isRevoked("header.payload.signature", claims(null, null)));
+    }
+
+    @Test
+    void rotationOnOneNodeIsHonoredOnTheOther() {
+        UUID family = UUID.randomUUID();
+
+        nodeA.supersede(family, 1);
+
+        assertTrue(nodeB.isRevoked("gen.zero.token", claims(family, 0)));
+        assertFalse(nodeB.isRevoked("gen.one.token", claims(family, 1)));
+    }
+
+    @Test
+    void eventsSurviveEncoding() {
+        List<RevocationEvent> events = List.of(
+            new RevocationEvent.TokenRevoked("fingerprint", LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS)),
+            new RevocationEvent.FamilySuperseded(UUID.randomUUID(), 3),
+            new RevocationEvent.UserSessionsRevoked("user|with@pipe.io"),
+            new RevocationEvent.UserSessionsRevoked(null),
+            new RevocationEvent.SigningKeyRotated("key-2"),
+            new RevocationEvent.SigningKeyRetired("key-1"),
+            new RevocationEvent.Resync());
+
+        events.forEach(event -> assertEquals(event, RevocationEvent.decode(RevocationEvent.encode(event))));
+    }
+
+    private RevocationIndex node(InProcessRevocationEventBus bus) {
+        RevocationIndex index = new RevocationIndex(
+            blacklistedTokenRepository, mock(RefreshTokenRepository.class), bus, 1000, 0.001, 100);
+        index.subscribe();
+        return index;
+    }
+
+    private static JwtClaims claims(UUID familyId, Integer generation) {
+        return new JwtClaims("user@iam.local", null, null, null, List.of(), List.of(), familyId, generation, 0, JwtUtil.ACCESS_TOKEN_TYPE);
+    }
+}
@@ -0,0 +1,155 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.infra.RevocationIndex;
+import com.matt.iam.repositories.BlacklistedTokenRepository;
+import com.matt.iam.repositories.BlacklistedTokenRepository.RevokedTokenView;
+import com.matt.iam.repositories.RefreshTokenRepository;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenHashUtil;
+
+@ExtendWith(MockitoExtension.class)
+public class RevocationIndexTests {
+    private static final JwtClaims UNTRACKED = claims(null, null);
+
+    @Mock
+    private BlacklistedTokenRepository blacklistedTokenRepository;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private RevocationEventBus revocationEventBus;
+
+    private RevocationIndex revocationIndex;
+
+    @BeforeEach
+    void setup() {
+        revocationIndex = new RevocationIndex(
+            blacklistedTokenRepository, refreshTokenRepository, revocationEventBus, 1000, 0.001, 100);
+    }
+
+    @Test
+    void loadsUnexpiredRowsFromRepository() {
+        byte[] hash = TokenHashUtil.hash("header.payload.signature");
+        RevokedTokenView row = new RevokedTokenView() {
+            public byte[] getTokenHash() { return hash; }
+            public LocalDateTime getExpiresAt() { return inMinutes(10); }
+        };
+        when(blacklistedTokenRepository.findByExpiresAtAfter(any())).thenReturn(List.of(row));
+        when(blacklistedTokenRepository.existsByTokenHash(hash)).thenReturn(true);
+
+        revocationIndex.load();
+
+        assertTrue(revocationIndex.isRevoked("header.payload.signature", UNTRACKED));
+        assertFalse(revocationIndex.isRevoked("another.payload.signature", UNTRACKED));
+    }
+
+    @Test
+    void reloadReplacesStaleConfirmations() {
+        byte[] hash = TokenHashUtil.hash("header.payload.signature");
+        RevokedTokenView row = new RevokedTokenView() {
+            public byte[] getTokenHash() { return hash; }
+            public LocalDateTime getExpiresAt() { return inMinutes(10); }
+        };
+        when(blacklistedTokenRepository.findByExpiresAtAfter(any())).thenReturn(List.of(row));
+        // the first check races the revoking transaction and sees no row yet
+        when(blacklistedTokenRepository.existsByTokenHash(hash)).thenReturn(false, true);
+
+        revocationIndex.load();
+        assertFalse(revocationIndex.isRevoked("header.payload.signature", UNTRACKED));
+
+        revocationIndex.load();
+        assertTrue(revocationIndex.isRevoked("header.payload.signature", UNTRACKED));
+    }
+
+    @Test
+    void unknownTokensNeverReachTheDatabase() {
+        revocationIndex.revoke("revoked.token.value", inMinutes(10));
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(revocationIndex.isRevoked("valid.token." + i, UNTRACKED));
+        }
+
+        verify(blacklistedTokenRepository, never()).existsByTokenHash(any());
+    }
+
+    @Test
+    void confirmsFilterHitsOnceAndCachesTheAnswer() {
+        byte[] hash = TokenHashUtil.hash("revoked.token.value");
+        when(blacklistedTokenRepository.existsByTokenHash(hash)).thenReturn(true);
+
+        revocationIndex.revoke("revoked.token.value", inMinutes(10));
+
+        assertTrue(revocationIndex.isRevoked("revoked.token.value", UNTRACKED));
+        assertTrue(revocationIndex.isRevoked("revoked.token.value", UNTRACKED));
+        verify(blacklistedTokenRepository, times(1)).existsByTokenHash(hash);
+    }
+
+    @Test
+    void keepsNoStaleAnswerFromQueryRacingARevocation() {
+        byte[] hash = TokenHashUtil.hash("revoked.token.value");
+        revocationIndex.revoke("revoked.token.value", inMinutes(10));
+        // the revocation commits while the confirmation query is still reading the old state
+        doAnswer(invocation -> {
+            revocationIndex.revoke("revoked.token.value", inMinutes(10));
+            return false;
+        }).doReturn(true).when(blacklistedTokenRepository).existsByTokenHash(hash);
+
+        assertFalse(revocationIndex.isRevoked("revoked.token.value", UNTRACKED));
+        assertTrue(revocationIndex.isRevoked("revoked.token.value", UNTRACKED));
+        verify(blacklistedTokenRepository, times(2)).existsByTokenHash(hash);
+    }
+
+    @Test
+    void ignoresTokensThatAlreadyExpired() {
+        revocationIndex.revoke("expired.token.value", inMinutes(-1));
+
+        assertFalse(revocationIndex.isRevoked("expired.token.value", UNTRACKED));
+        assertEquals(0, revocationIndex.size());
+    }
+
+    @Test
+    void rejectsOlderGenerationsOfSupersededFamily() {
+        UUID family = UUID.randomUUID();
+
+        revocationIndex.supersede(family, 2);
+
+        assertTrue(revocationIndex.isRevoked("gen.one.token", claims(family, 1)));
+        assertFalse(revocationIndex.isRevoked("gen.two.token", claims(family, 2)));
+        assertFalse(revocationIndex.isRevoked("other.family.token", claims(UUID.randomUUID(), 0)));
+
+        revocationIndex.revokeFamily(family);
+        assertTrue(revocationIndex.isRevoked("gen.two.token", claims(family, 2)));
+    }
+
+    private static JwtClaims claims(UUID familyId, Integer generation) {
+        return new JwtClaims("user@iam.local", null, null, null, List.of(), List.of(), familyId, generation, 0, JwtUtil.ACCESS_TOKEN_TYPE);
+    }
+
+    private static LocalDateTime inMinutes(long minutes) {
+        return LocalDateTime.now(ZoneOffset.UTC).plusMinutes(minutes);
+    }
+}
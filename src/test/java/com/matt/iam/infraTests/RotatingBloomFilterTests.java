@@ -0,0 +1,55 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import com.matt.iam.infra.RotatingBloomFilter;
+import com.matt.iam.utils.TokenHashUtil;
+
+public class RotatingBloomFilterTests {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void hasNoFalseNegativesAndFewFalsePositives() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(Duration.ofMinutes(5), 10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(TokenHashUtil.hash("revoked." + i), NOW.plusMinutes(1));
+        }
+
+        int falsePositives = 0;
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(TokenHashUtil.hash("revoked." + i)));
+
+            if (filter.mightContain(TokenHashUtil.hash("valid." + i))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void dropsBucketsOnceEveryEntryInThemExpired() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(Duration.ofMinutes(5), 100, 0.01);
+        byte[] shortLived = TokenHashUtil.hash("short.lived");
+        byte[] longLived = TokenHashUtil.hash("long.lived");
+
+        filter.put(shortLived, NOW.plusMinutes(1));
+        filter.put(longLived, NOW.plusMinutes(14));
+
+        filter.evictExpired(NOW.plusMinutes(10));
+
+        assertEquals(1, filter.bucketCount());
+        assertFalse(filter.mightContain(shortLived));
+        assertTrue(filter.mightContain(longLived));
+    }
+}
@@ -0,0 +1,154 @@
+package com.matt.iam.infraTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.AopTestUtils;
+
+import com.matt.iam.entities.User;
+import com.matt.iam.infra.CacheConfig;
+import com.matt.iam.infra.InProcessRevocationEventBus;
+import com.matt.iam.infra.RevocationEvent;
+import com.matt.iam.infra.RevocationEventBus;
+import com.matt.iam.repositories.UserRepository;
+import com.matt.iam.services.UserAuthorizationService;
+
+/**
+ * Runs the real caching proxies over a mocked {@link UserRepository}, so a write that
+ * loses its {@code @CacheEvict} shows up as a stale authorization snapshot.
+ */
+public class UserAuthorizationCacheTests {
+    private static final String EMAIL = "user@iam.local";
+    private static final String OTHER_EMAIL = "other@iam.local";
+
+    private AnnotationConfigApplicationContext context;
+    private UserRepository mockRepository;
+    private UserRepository userRepository;
+    private UserAuthorizationService userAuthorizationService;
+
+    @BeforeEach
+    void setup() {
+        context = new AnnotationConfigApplicationContext(TestConfig.class);
+        userRepository = context.getBean(UserRepository.class);
+        mockRepository = AopTestUtils.getUltimateTargetObject(userRepository);
+        userAuthorizationService = context.getBean(UserAuthorizationService.class);
+
+        when(mockRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user(EMAIL)));
+    }
+
+    @AfterEach
+    void teardown() {
+        context.close();
+    }
+
+    @Test
+    void servesRepeatedLookupsFromCache() {
+        userAuthorizationService.findByEmail(EMAIL);
+        userAuthorizationService.findByEmail(EMAIL);
+
+        verify(mockRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void saveEvictsTheSavedUser() {
+        userAuthorizationService.findByEmail(EMAIL);
+
+        userRepository.save(user(EMAIL));
+        userAuthorizationService.findByEmail(EMAIL);
+
+        verify(mockRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void tokenVersionBumpEvictsTheUser() {
+        userAuthorizationService.findByEmail(EMAIL);
+
+        userRepository.incrementTokenVersion(EMAIL);
+        userAuthorizationService.findByEmail(EMAIL);
+
+        verify(mockRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void globalTokenVersionBumpEvictsEveryone() {
+        when(mockRepository.findByEmail(OTHER_EMAIL)).thenReturn(Optional.of(user(OTHER_EMAIL)));
+        userAuthorizationService.findByEmail(EMAIL);
+        userAuthorizationService.findByEmail(OTHER_EMAIL);
+
+        userRepository.incrementAllTokenVersions();
+        userAuthorizationService.findByEmail(EMAIL);
+        userAuthorizationService.findByEmail(OTHER_EMAIL);
+
+        verify(mockRepository, times(2)).findByEmail(EMAIL);
+        verify(mockRepository, times(2)).findByEmail(OTHER_EMAIL);
+    }
+
+    @Test
+    void tokenStateIsEvictedLikeTheSnapshot() {
+        when(mockRepository.findTokenStateByEmail(EMAIL)).thenReturn(Optional.of(tokenState(0)));
+        userAuthorizationService.findTokenStateByEmail(EMAIL);
+        userAuthorizationService.findTokenStateByEmail(EMAIL);
+
+        userRepository.incrementTokenVersion(EMAIL);
+        userAuthorizationService.findTokenStateByEmail(EMAIL);
+
+        // a bump made on another node
+        context.getBean(RevocationEventBus.class).publish(new RevocationEvent.UserSessionsRevoked(EMAIL));
+        userAuthorizationService.findTokenStateByEmail(EMAIL);
+
+        verify(mockRepository, times(3)).findTokenStateByEmail(EMAIL);
+    }
+
+    @Test
+    void otherWritesKeepTheEntry() {
+        userAuthorizationService.findByEmail(EMAIL);
+
+        userRepository.resetFailedLoginAttempts(UUID.randomUUID());
+        assertEquals(EMAIL, userAuthorizationService.findByEmail(EMAIL).orElseThrow().email());
+
+        verify(mockRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    private static UserRepository.TokenState tokenState(int tokenVersion) {
+        return new UserRepository.TokenState() {
+            public int getTokenVersion() { return tokenVersion; }
+            public boolean getEnabled() { return true; }
+        };
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail(email);
+        user.setEnabled(true);
+        return user;
+    }
+
+    @Configuration
+    @Import({ CacheConfig.class, UserAuthorizationService.class })
+    static class TestConfig {
+        // wrapped in the caching proxy like the Spring Data repository would be
+        @Bean
+        UserRepository userRepository() {
+            return mock(UserRepository.class);
+        }
+
+        @Bean
+        RevocationEventBus revocationEventBus() {
+            return new InProcessRevocationEventBus();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.matt.iam.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency and error counts for one endpoint. Recording is lock free so virtual users
+ * don't serialize on the stats; the measured window is taken with {@link #snapshot()}.
+ */
+class EndpointStats {
+    private final String name;
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return this.name;
+    }
+
+    void record(long elapsedNanos, boolean success) {
+        this.recorder.recordValue(Math.max(1, elapsedNanos / 1_000));
+        if (!success) {
+            this.errors.increment();
+        }
+    }
+
+    // drops everything recorded so far, used to discard the warmup
+    void reset() {
+        this.recorder.reset();
+        this.errors.reset();
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(this.name, this.recorder.getIntervalHistogram(), this.errors.sumThenReset());
+    }
+
+    record Snapshot(String name, Histogram histogram, long errors) {
+        long count() {
+            return this.histogram.getTotalCount();
+        }
+
+        double throughput(double seconds) {
+            return count() / seconds;
+        }
+
+        double percentileMillis(double percentile) {
+            return this.histogram.getValueAtPercentile(percentile) / 1_000.0;
+        }
+
+        double maxMillis() {
+            return this.histogram.getMaxValue() / 1_000.0;
+        }
+    }
+}
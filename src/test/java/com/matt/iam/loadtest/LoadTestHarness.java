@@ -0,0 +1,286 @@
+package com.matt.iam.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matt.iam.IamApplication;
+import com.matt.iam.entities.Permission;
+import com.matt.iam.entities.Role;
+import com.matt.iam.repositories.PermissionRepository;
+import com.matt.iam.repositories.RoleRepository;
+import com.matt.iam.services.TokenIntrospectionService;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Closed loop load test for the auth endpoints. Each virtual user repeats the journey
+ * register, login, a few authenticated calls, refresh, logout, and every call is
+ * recorded in a per endpoint histogram. The app is booted against an embedded Postgres
+ * unless {@code loadtest.base-url} points at a running instance, whose USER role then
+ * needs the INTROSPECT permission for the authenticated calls to succeed.
+ *
+ * <p>mvn -Ploadtest -DskipTests verify -Dloadtest.concurrency=200 -Dloadtest.duration-seconds=60
+ *
+ * <p>Arguments after the main class are handed to Spring, so configurations can be
+ * compared, e.g. {@code -Dloadtest.app-args=--spring.threads.virtual.enabled=true}.
+ */
+public class LoadTestHarness {
+    private static final String PASSWORD = "Dummy@pass1234";
+    private static final String AUTHENTICATED_RESOURCE = "introspect";
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final int resourceCallsPerSession;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    LoadTestHarness(String baseUrl, int resourceCallsPerSession) {
+        this.baseUrl = baseUrl;
+        this.resourceCallsPerSession = resourceCallsPerSession;
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        for (String endpoint : List.of("register", "login", AUTHENTICATED_RESOURCE, "refresh", "logout")) {
+            this.stats.put(endpoint, new EndpointStats(endpoint));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 50);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 10);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+        int resourceCalls = Integer.getInteger("loadtest.resource-calls", 5);
+        Path output = Path.of(System.getProperty("loadtest.output", "target/loadtest-result.csv"));
+        String baseUrl = System.getProperty("loadtest.base-url", "");
+
+        EmbeddedPostgres postgres = null;
+        ConfigurableApplicationContext context = null;
+
+        try {
+            if (baseUrl.isBlank()) {
+                postgres = EmbeddedPostgres.builder().start();
+                context = boot(postgres, args);
+                grantIntrospection(context);
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+
+            LoadTestHarness harness = new LoadTestHarness(baseUrl, resourceCalls);
+            System.out.printf("Target %s, %d virtual users, %ds warmup, %ds measured%n",
+                    baseUrl, concurrency, warmupSeconds, durationSeconds);
+
+            harness.run(concurrency, Duration.ofSeconds(warmupSeconds));
+            harness.stats.values().forEach(EndpointStats::reset);
+
+            long start = System.nanoTime();
+            harness.run(concurrency, Duration.ofSeconds(durationSeconds));
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            harness.report(elapsedSeconds, output);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext boot(EmbeddedPostgres postgres, String[] args) {
+        // passed as command line arguments so they win over application.properties,
+        // SQL logging and INFO logs would otherwise end up being measured alongside the app
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("management.server.port", "0");
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("jwt.secret.key", "loadtest-secret-" + UUID.randomUUID());
+
+        for (String arg : args) {
+            for (String part : arg.trim().split("\\s+")) {
+                int separator = part.indexOf('=');
+                if (part.startsWith("--") && separator > 2) {
+                    properties.put(part.substring(2, separator), part.substring(separator + 1));
+                }
+            }
+        }
+
+        String[] appArgs = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+
+        return new SpringApplicationBuilder(IamApplication.class).run(appArgs);
+    }
+
+    // the authenticated calls go to /introspect, which registered users cannot call by default
+    private static void grantIntrospection(ConfigurableApplicationContext context) {
+        PermissionRepository permissionRepository = context.getBean(PermissionRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+
+        // seeded by DummyRoleInitializer
+        Permission introspect = permissionRepository.findByName(TokenIntrospectionService.AUTHORITY).orElseThrow();
+        Role userRole = roleRepository.findByName("USER").orElseThrow();
+
+        Set<Permission> permissions = new HashSet<>(userRole.getPermissions());
+        permissions.add(introspect);
+        userRole.setPermissions(permissions);
+        roleRepository.save(userRole);
+    }
+
+    private void run(int concurrency, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                users.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        session();
+                    }
+                });
+            }
+            users.shutdown();
+            users.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        }
+    }
+
+    // a failed step ends the session, the next one starts with a fresh user
+    private void session() {
+        String id = UUID.randomUUID().toString().replace("-", "");
+        String nickname = "load" + id.substring(0, 16);
+        String email = "load_" + id + "@example.com";
+
+        try {
+            if (send("register", json("/register", Map.of(
+                    "nickname", nickname, "email", email, "password", PASSWORD), null)) == null) {
+                return;
+            }
+
+            JsonNode login = send("login", json("/login", Map.of("email", email, "password", PASSWORD), null));
+            if (login == null) {
+                return;
+            }
+            String accessToken = login.path("token").asText();
+            String refreshToken = login.path("refreshToken").asText();
+
+            for (int i = 0; i < this.resourceCallsPerSession; i++) {
+                if (send(AUTHENTICATED_RESOURCE, introspect(accessToken)) == null) {
+                    return;
+                }
+            }
+
+            JsonNode refreshed = send("refresh", json("/refresh", Map.of("refreshToken", refreshToken), accessToken));
+            if (refreshed == null) {
+                return;
+            }
+            accessToken = refreshed.path("token").asText();
+            refreshToken = refreshed.path("refreshToken").asText();
+
+            send("logout", json("/logout", Map.of("refreshToken", refreshToken), accessToken));
+        } catch (IOException e) {
+            // already counted as an error on the endpoint that failed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest json(String path, Map<String, String> body, String accessToken) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(this.baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(body)));
+
+        if (accessToken != null) {
+            builder.header("Authorization", "Bearer " + accessToken);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest introspect(String accessToken) {
+        return HttpRequest.newBuilder(URI.create(this.baseUrl + "/introspect"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Authorization", "Bearer " + accessToken)
+                .POST(HttpRequest.BodyPublishers.ofString("token=" + URLEncoder.encode(accessToken, StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    // returns the parsed body, or null when the call did not succeed
+    private JsonNode send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        EndpointStats endpointStats = this.stats.get(endpoint);
+        long start = System.nanoTime();
+
+        try {
+            HttpResponse<byte[]> response = this.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            boolean success = response.statusCode() / 100 == 2;
+            endpointStats.record(System.nanoTime() - start, success);
+
+            if (!success) {
+                return null;
+            }
+            return response.body().length == 0
+                    ? this.objectMapper.nullNode()
+                    : this.objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            endpointStats.record(System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private void report(double elapsedSeconds, Path output) throws IOException {
+        List<EndpointStats.Snapshot> snapshots = this.stats.values().stream()
+                .map(EndpointStats::snapshot)
+                .toList();
+
+        System.out.printf("%n%-12s %10s %10s %10s %10s %10s %10s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            System.out.printf(Locale.ROOT, "%-12s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                    snapshot.name(), snapshot.count(), snapshot.throughput(elapsedSeconds),
+                    snapshot.percentileMillis(50), snapshot.percentileMillis(99),
+                    snapshot.percentileMillis(99.9), snapshot.maxMillis(), snapshot.errors());
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            writer.println("endpoint,requests,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms,errors");
+            for (EndpointStats.Snapshot snapshot : snapshots) {
+                writer.printf(Locale.ROOT, "%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d%n",
+                        snapshot.name(), snapshot.count(), snapshot.throughput(elapsedSeconds),
+                        snapshot.percentileMillis(50), snapshot.percentileMillis(99),
+                        snapshot.percentileMillis(99.9), snapshot.maxMillis(), snapshot.errors());
+            }
+        }
+        System.out.println("\nResults written to " + output.toAbsolutePath());
+    }
+}
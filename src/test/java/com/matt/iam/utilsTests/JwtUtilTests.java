@@ -0,0 +1,160 @@
+package com.matt.iam.utilsTests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.matt.iam.entities.Role;
+import com.matt.iam.entities.User;
+import com.matt.iam.utils.IssuedToken;
+import com.matt.iam.utils.JwtClaims;
+import com.matt.iam.utils.JwtUtil;
+import com.matt.iam.utils.TokenVerification;
+
+public class JwtUtilTests {
+    private static final UUID FAMILY = UUID.randomUUID();
+
+    private JwtUtil jwtUtil;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        jwtUtil = hmac("current-secret", "k2", "k1:previous-secret,k3:next-secret");
+
+        Role role = new Role();
+        role.setName("USER");
+        user = new User();
+        user.setEmail("user@iam.local");
+        user.setRoles(Set.of(role));
+    }
+
+    @Test
+    void signsWithCurrentKeyId() {
+        String token = jwtUtil.generateAccessToken(user, FAMILY, 0).token();
+
+        assertEquals("k2", JWT.decode(token).getKeyId());
+        assertEquals("user@iam.local", subjectOf(token));
+    }
+
+    @Test
+    void verifiesTokensSignedWithPreviousKey() {
+        JwtUtil previous = hmac("previous-secret", "k1", "");
+        String token = previous.generateAccessToken(user, FAMILY, 0).token();
+
+        assertEquals("user@iam.local", subjectOf(token));
+    }
+
+    @Test
+    void keepsVerifyingUntilRotatedOutKeyIsRetired() {
+        String token = jwtUtil.generateAccessToken(user, FAMILY, 0).token();
+
+        jwtUtil.promoteKey("k3");
+        assertEquals("k3", JWT.decode(jwtUtil.generateAccessToken(user, FAMILY, 0).token()).getKeyId());
+        assertEquals("user@iam.local", subjectOf(token));
+
+        jwtUtil.retireKey("k2");
+        assertNull(subjectOf(token));
+    }
+
+    @Test
+    void promotesOnlyProvisionedKeys() {
+        assertThrows(IllegalArgumentException.class, () -> jwtUtil.promoteKey("k4"));
+        assertEquals("k2", jwtUtil.getCurrentKeyId());
+    }
+
+    @Test
+    void refusesHmacPromotionWhileSigningWithEc() {
+        JwtUtil ecdsa = new JwtUtil("current-secret", "k2", "k3:next-secret", "ES256", "ec-1", "", "", "");
+
+        assertThrows(IllegalStateException.class, () -> ecdsa.promoteKey("k3"));
+        assertEquals("ec-1", ecdsa.getCurrentKeyId());
+        assertTrue(ecdsa.getJwkSet().json().contains("\"kid\":\"ec-1\""));
+    }
+
+    @Test
+    void rejectsUnknownKeyId() {
+        JwtUtil foreign = hmac("current-secret", "unknown", "");
+
+        assertNull(subjectOf(foreign.generateAccessToken(user, FAMILY, 0).token()));
+    }
+
+    @Test
+    void decodesIssuedTokenInOnePass() {
+        IssuedToken issued = jwtUtil.generateRefreshToken(user, FAMILY, 0);
+        JwtClaims claims = jwtUtil.decodeToken(issued.token());
+
+        assertEquals("user@iam.local", claims.subject());
+        assertEquals(issued.jti(), claims.jti());
+        assertEquals(issued.expiresAt(), claims.expiresAt());
+        assertEquals(List.of("USER"), claims.roles());
+        assertEquals(List.of(), claims.permissions());
+        assertEquals(FAMILY, claims.familyId());
+        assertEquals(0, claims.generation());
+        assertEquals(JwtUtil.REFRESH_TOKEN_TYPE, claims.type());
+        assertFalse(claims.isAccessToken());
+        assertTrue(jwtUtil.decodeToken(jwtUtil.generateAccessToken(user, FAMILY, 0).token()).isAccessToken());
+    }
+
+    @Test
+    void refusesToRetireCurrentKey() {
+        assertThrows(IllegalArgumentException.class, () -> jwtUtil.retireKey("k2"));
+    }
+
+    @Test
+    void signsWithEcKeyAndPublishesItsPublicHalf() {
+        JwtUtil ecdsa = new JwtUtil("current-secret", "k2", "", "ES256", "ec-1", "", "", "");
+        String token = ecdsa.generateAccessToken(user, FAMILY, 0).token();
+
+        assertEquals("ES256", JWT.decode(token).getAlgorithm());
+        assertEquals("ec-1", JWT.decode(token).getKeyId());
+        assertEquals("user@iam.local", ecdsa.decodeToken(token).subject());
+        assertTrue(ecdsa.getJwkSet().json().contains("\"kid\":\"ec-1\""));
+        assertFalse(ecdsa.getJwkSet().json().contains("k2"));
+    }
+
+    @Test
+    void keepsVerifyingHmacTokensAfterSwitchingToEc() {
+        String token = jwtUtil.generateAccessToken(user, FAMILY, 0).token();
+        JwtUtil ecdsa = new JwtUtil("current-secret", "k2", "", "ES256", "ec-1", "", "", "");
+
+        assertEquals("user@iam.local", ecdsa.decodeToken(token).subject());
+    }
+
+    @Test
+    void reportsWhyTokenWasRejected() {
+        String token = jwtUtil.generateAccessToken(user, FAMILY, 0).token();
+        String expired = JWT.create()
+            .withKeyId("k2")
+            .withIssuer(JwtUtil.ISSUER)
+            .withSubject("user@iam.local")
+            .withExpiresAt(Instant.now().minusSeconds(60))
+            .sign(Algorithm.HMAC256("current-secret"));
+        JwtUtil sameKeyIdOtherSecret = hmac("other-secret", "k2", "");
+
+        assertEquals(TokenVerification.Status.VALID, jwtUtil.verifyToken(token).status());
+        assertEquals(TokenVerification.Status.EXPIRED, jwtUtil.verifyToken(expired).status());
+        assertEquals(TokenVerification.Status.INVALID_SIGNATURE, sameKeyIdOtherSecret.verifyToken(token).status());
+        assertEquals(TokenVerification.Status.MALFORMED, jwtUtil.verifyToken("not-a-token").status());
+    }
+
+    private static JwtUtil hmac(String secret, String keyId, String previousKeys) {
+        return new JwtUtil(secret, keyId, previousKeys, "HS256", "ec-1", "", "", "");
+    }
+
+    private String subjectOf(String token) {
+        JwtClaims claims = jwtUtil.decodeToken(token);
+        return claims == null ? null : claims.subject();
+    }
+}